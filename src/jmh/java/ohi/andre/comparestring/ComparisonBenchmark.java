@@ -0,0 +1,106 @@
+package ohi.andre.comparestring;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ *  Benchmarks the comparison of two {@code String} objects, and the methods used to prepare them
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ComparisonBenchmark {
+
+    private static final int PAIRS = 1024;
+
+    @Param({Datasets.COMMANDS, Datasets.PATHS, Datasets.ACCENTED})
+    public String dataset;
+
+    private final Comparer comparer = new Comparer();
+    private final Comparer asciiComparer = new Comparer(new CompareProfile.Builder().foldAccents(false).build());
+
+    private String[] strings;
+    private String[] queries;
+    private int next;
+
+    @Setup
+    public void setup() {
+        strings = Datasets.generate(dataset, PAIRS, Datasets.SEED);
+        queries = Datasets.queries(strings, PAIRS, Datasets.SEED + 1);
+    }
+
+    private int next() {
+        next = (next + 1) & (PAIRS - 1);
+        return next;
+    }
+
+    @Benchmark
+    public int linearComparison() {
+        int count = next();
+        return Compare.linearComparison(strings[count], queries[count]);
+    }
+
+    @Benchmark
+    public int scrollComparison() {
+        int count = next();
+        return Compare.scrollComparison(strings[count], queries[count]);
+    }
+
+    @Benchmark
+    public int comparerLinearComparison() {
+        int count = next();
+        return comparer.linearComparison(strings[count], queries[count]);
+    }
+
+    @Benchmark
+    public int comparerScrollComparison() {
+        int count = next();
+        return comparer.scrollComparison(strings[count], queries[count]);
+    }
+
+    @Benchmark
+    public int unfoldedLinearComparison() {
+        int count = next();
+        return asciiComparer.linearComparison(strings[count], queries[count]);
+    }
+
+    @Benchmark
+    public int alphabeticCompare() {
+        int count = next();
+        return Compare.alphabeticCompare(strings[count], queries[count]);
+    }
+
+    @Benchmark
+    public String[] sortWithComparator() {
+        String[] sorted = strings.clone();
+        Arrays.sort(sorted, Compare.alphabeticComparator());
+        return sorted;
+    }
+
+    @Benchmark
+    public String[] sortAlphabetically() {
+        String[] sorted = strings.clone();
+        Compare.sortAlphabetically(sorted);
+        return sorted;
+    }
+
+    @Benchmark
+    public String removeAccents() {
+        return Compare.removeAccents(strings[next()]);
+    }
+}
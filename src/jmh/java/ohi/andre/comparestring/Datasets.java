@@ -0,0 +1,134 @@
+package ohi.andre.comparestring;
+
+import java.util.Random;
+
+/**
+ *  Generates the {@code String} sets used by the benchmarks. Every set is built from
+ *  a fixed seed, so the same set is generated on every run
+ */
+final class Datasets {
+
+    static final long SEED = 0x5EEDL;
+
+    static final String COMMANDS = "commands";
+    static final String PATHS = "paths";
+    static final String ACCENTED = "accented";
+
+    private static final String[] SYLLABLES = {
+        "git", "ls", "cat", "make", "grep", "find", "fire", "fox", "tele", "gram", "note", "pad", "mail",
+        "cal", "cam", "era", "music", "play", "er", "vim", "term", "set", "tings", "map", "chat", "clock"
+    };
+    private static final String[] DIRECTORIES = {
+        "usr", "lib", "share", "local", "bin", "etc", "home", "user", "Documents", "Pictures", "x86_64-linux-gnu",
+        "java", "openjdk", "src", "main", "resources", "node_modules", "build", "cache", "config", "var", "log"
+    };
+    private static final String[] EXTENSIONS = {".so", ".jar", ".txt", ".png", ".java", ".conf", ".log", ".json"};
+    private static final String[] WORDS = {
+        "Café", "Crème", "brûlée", "Ångström", "Ærø", "señor", "niño", "Noël", "Zoë", "façade", "São", "Paulo",
+        "Müller", "Straße", "Ελλάδα", "Αθήνα", "Dvořák", "Łódź", "İstanbul", "naïve", "résumé", "déjà", "vu"
+    };
+
+    private Datasets() {}
+
+    /**
+     *  Generates a set of {@code String} objects
+     *
+     * @param kind
+     *  {@link #COMMANDS}, {@link #PATHS} or {@link #ACCENTED}
+     * @param size
+     *  The number of {@code String} objects
+     * @param seed
+     *  The seed of the generator
+     * @return
+     *  The generated set
+     */
+    static String[] generate(String kind, int size, long seed) {
+        Random random = new Random(seed);
+        String[] strings = new String[size];
+        for (int count = 0; count < size; count++) {
+            strings[count] = generate(kind, random);
+        }
+        return strings;
+    }
+
+    /**
+     *  Generates queries for a set: each one is an element of the set with some chars
+     *  removed, swapped or changed, or a prefix of it
+     *
+     * @param strings
+     *  The set of {@code String} objects
+     * @param size
+     *  The number of queries
+     * @param seed
+     *  The seed of the generator
+     * @return
+     *  The generated queries
+     */
+    static String[] queries(String[] strings, int size, long seed) {
+        Random random = new Random(seed);
+        String[] queries = new String[size];
+        for (int count = 0; count < size; count++) {
+            String source = strings[random.nextInt(strings.length)];
+            queries[count] = random.nextInt(4) == 0 ? source.substring(0, 1 + random.nextInt(source.length())) :
+                    typo(source, random);
+        }
+        return queries;
+    }
+
+    private static String generate(String kind, Random random) {
+        StringBuilder builder = new StringBuilder();
+        switch (kind) {
+            case COMMANDS:
+                int syllables = 1 + random.nextInt(3);
+                for (int count = 0; count < syllables; count++) {
+                    if(count > 0 && random.nextInt(4) == 0)
+                        builder.append(random.nextBoolean() ? '-' : ' ');
+                    builder.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+                }
+                if(random.nextInt(3) == 0)
+                    builder.setCharAt(0, Character.toUpperCase(builder.charAt(0)));
+                return builder.toString();
+            case PATHS:
+                int directories = 3 + random.nextInt(8);
+                for (int count = 0; count < directories; count++) {
+                    builder.append('/').append(DIRECTORIES[random.nextInt(DIRECTORIES.length)]);
+                }
+                builder.append('/').append(SYLLABLES[random.nextInt(SYLLABLES.length)])
+                        .append(random.nextInt(100))
+                        .append(EXTENSIONS[random.nextInt(EXTENSIONS.length)]);
+                return builder.toString();
+            case ACCENTED:
+                int words = 1 + random.nextInt(3);
+                for (int count = 0; count < words; count++) {
+                    if(count > 0)
+                        builder.append(' ');
+                    builder.append(WORDS[random.nextInt(WORDS.length)]);
+                }
+                return builder.toString();
+            default:
+                throw new IllegalArgumentException("Unknown dataset: " + kind);
+        }
+    }
+
+    private static String typo(String source, Random random) {
+        StringBuilder builder = new StringBuilder(source);
+        int typos = 1 + random.nextInt(2);
+        for (int count = 0; count < typos && builder.length() > 1; count++) {
+            int position = random.nextInt(builder.length() - 1);
+            switch (random.nextInt(3)) {
+                case 0:
+                    builder.deleteCharAt(position);
+                    break;
+                case 1:
+                    char c = builder.charAt(position);
+                    builder.setCharAt(position, builder.charAt(position + 1));
+                    builder.setCharAt(position + 1, c);
+                    break;
+                default:
+                    builder.setCharAt(position, (char) ('a' + random.nextInt(26)));
+                    break;
+            }
+        }
+        return builder.toString();
+    }
+}
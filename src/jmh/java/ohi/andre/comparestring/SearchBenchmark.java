@@ -0,0 +1,101 @@
+package ohi.andre.comparestring;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ohi.andre.comparestring.Compare.CompareInfo;
+
+/**
+ *  Benchmarks the search methods of {@link Compare} and {@link CompareIndex} over generated sets
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SearchBenchmark {
+
+    private static final int QUERIES = 64;
+    private static final int MIN_RATE = 5;
+
+    @Param({Datasets.COMMANDS, Datasets.PATHS, Datasets.ACCENTED})
+    public String dataset;
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean scrollCompare;
+
+    private String[] strings;
+    private String[] queries;
+    private CompareIndex index;
+    private int next;
+
+    @Setup
+    public void setup() {
+        strings = Datasets.generate(dataset, size, Datasets.SEED);
+        queries = Datasets.queries(strings, QUERIES, Datasets.SEED + 1);
+        index = new CompareIndex(strings);
+    }
+
+    private String nextQuery() {
+        next = (next + 1) % QUERIES;
+        return queries[next];
+    }
+
+    @Benchmark
+    public String similarString() {
+        return Compare.similarString(strings, nextQuery(), MIN_RATE, scrollCompare);
+    }
+
+    @Benchmark
+    public List<String> similarStrings() {
+        return Compare.similarStrings(strings, nextQuery(), MIN_RATE, scrollCompare);
+    }
+
+    @Benchmark
+    public List<CompareInfo> compareInfo() {
+        return Compare.compareInfo(strings, nextQuery(), MIN_RATE, scrollCompare);
+    }
+
+    @Benchmark
+    public String indexSimilarString() {
+        return index.similarString(nextQuery(), MIN_RATE, scrollCompare);
+    }
+
+    @Benchmark
+    public List<CompareInfo> indexCompareInfo() {
+        return index.compareInfo(nextQuery(), MIN_RATE, scrollCompare);
+    }
+
+    /**
+     *  Resolves every query one at a time, the baseline of {@link #similarStringsBatch()}
+     */
+    @Benchmark
+    public String[] similarStringEveryQuery() {
+        String[] similar = new String[QUERIES];
+        for (int q = 0; q < QUERIES; q++) {
+            similar[q] = Compare.similarString(strings, queries[q], MIN_RATE, scrollCompare);
+        }
+        return similar;
+    }
+
+    @Benchmark
+    public String[] similarStringsBatch() {
+        return ParallelCompare.similarStringsBatch(queries, strings, MIN_RATE, scrollCompare);
+    }
+}
@@ -0,0 +1,600 @@
+package ohi.andre.comparestring;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+import ohi.andre.comparestring.Compare.CompareInfo;
+
+/**
+ *  Asynchronous versions of the search methods of {@link Compare} and {@link CompareIndex}, for callers that
+ *  can't wait for a query, or that may not need its result anymore (a new keystroke makes the previous query useless).
+ *  A query runs on the executor of this object, and its {@link CompletableFuture} is returned at once.
+ *  <p>
+ *  The elements are compared in chunks of 64, in the order of the set, and the future is checked before every chunk:
+ *  cancelling it, or completing it in any other way, stops the query after the chunk it is comparing.
+ *  The queries that take a {@code progress} consumer also give it their result so far, over the elements
+ *  compared until then, after every chunk that changed it.
+ *  <p>
+ *  The result of a query is always the same that the sequential method gives
+ */
+public class AsyncCompare {
+
+    /**
+     * The number of elements compared between two checks of the future
+     */
+    private static final int CHUNK_SIZE = 64;
+
+    private final Executor executor;
+
+    /**
+     *  Construct a new instance of {@code AsyncCompare} that runs the queries in the common {@link ForkJoinPool}
+     */
+    public AsyncCompare() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     *  Construct a new instance of {@code AsyncCompare}
+     *
+     * @param executor
+     *  The executor that runs the queries, every query is a single task
+     */
+    public AsyncCompare(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * @return
+     *  The executor that runs the queries
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     *  Compare the {@code String} parameter to every element of the index, and
+     *  completes with the most similar {@code String}, or null if the greatest rate is lower
+     *  than {@code minRate}
+     *
+     * @param index
+     *  The set of {@code String} objects
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be returned
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  A future of the most similar {@code String} object in the index, it can be cancelled
+     * @see CompareIndex#similarString(String, int, boolean)
+     */
+    public CompletableFuture<String> similarString(CompareIndex index, String string, int minRate, boolean scrollCompare) {
+        return similarString(index, string, minRate, scrollCompare, null);
+    }
+
+    /**
+     *  Compare the {@code String} parameter to every element of the index, and
+     *  completes with the most similar {@code String}, or null if the greatest rate is lower
+     *  than {@code minRate}
+     *
+     * @param index
+     *  The set of {@code String} objects
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be returned
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @param progress
+     *  Gets the most similar {@code String} object found so far, if its rate is at least {@code minRate}.
+     *  It is called on the thread of the query, it can be null
+     * @return
+     *  A future of the most similar {@code String} object in the index, it can be cancelled
+     * @see CompareIndex#similarString(String, int, boolean)
+     */
+    public CompletableFuture<String> similarString(CompareIndex index, String string, int minRate, boolean scrollCompare,
+            Consumer<? super String> progress) {
+
+        if(string == null || index.size() == 0 || string.length() == 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return submit(new SimilarStringQuery(Scorer.of(index), string, minRate, scrollCompare, progress));
+    }
+
+    /**
+     *  Compare the {@code String} parameter to every element of the {@code String} Array, and
+     *  completes with the most similar {@code String}, or null if the greatest rate is lower
+     *  than {@code minRate}
+     *
+     * @param strings
+     *  The set of {@code String} objects, it must not change until the query is done
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be returned
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  A future of the most similar {@code String} object in the {@code String} set, it can be cancelled
+     * @see Compare#similarString(String[], String, int, boolean)
+     */
+    public CompletableFuture<String> similarString(String[] strings, String string, int minRate, boolean scrollCompare) {
+        return similarString(strings, string, minRate, scrollCompare, null);
+    }
+
+    /**
+     *  Compare the {@code String} parameter to every element of the {@code String} Array, and
+     *  completes with the most similar {@code String}, or null if the greatest rate is lower
+     *  than {@code minRate}
+     *
+     * @param strings
+     *  The set of {@code String} objects, it must not change until the query is done
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be returned
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @param progress
+     *  Gets the most similar {@code String} object found so far, if its rate is at least {@code minRate}.
+     *  It is called on the thread of the query, it can be null
+     * @return
+     *  A future of the most similar {@code String} object in the {@code String} set, it can be cancelled
+     * @see Compare#similarString(String[], String, int, boolean)
+     */
+    public CompletableFuture<String> similarString(String[] strings, String string, int minRate, boolean scrollCompare,
+            Consumer<? super String> progress) {
+
+        if(string == null || strings == null || strings.length == 0 || string.length() == 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return submit(new SimilarStringQuery(Scorer.of(strings), string, minRate, scrollCompare, progress));
+    }
+
+    /**
+     *  Completes with the {@code k} {@code String} objects in the index with the greatest compare rate
+     *  (if the rate is equal or greater to {@code minRate}), sorted from the most similar
+     *
+     * @param index
+     *  The set of {@code String} objects
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param k
+     *  The greatest number of {@code CompareInfo} objects to return
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be considered similar
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  A future of a sorted list containing at most {@code k} {@code CompareInfo} objects, it can be cancelled
+     * @see CompareIndex#topK(String, int, int, boolean)
+     */
+    public CompletableFuture<List<CompareInfo>> topK(CompareIndex index, String string, int k, int minRate,
+            boolean scrollCompare) {
+        return topK(index, string, k, minRate, scrollCompare, null);
+    }
+
+    /**
+     *  Completes with the {@code k} {@code String} objects in the index with the greatest compare rate
+     *  (if the rate is equal or greater to {@code minRate}), sorted from the most similar
+     *
+     * @param index
+     *  The set of {@code String} objects
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param k
+     *  The greatest number of {@code CompareInfo} objects to return
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be considered similar
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @param progress
+     *  Gets the sorted list of the best {@code CompareInfo} objects found so far.
+     *  It is called on the thread of the query, it can be null
+     * @return
+     *  A future of a sorted list containing at most {@code k} {@code CompareInfo} objects, it can be cancelled
+     * @see CompareIndex#topK(String, int, int, boolean)
+     */
+    public CompletableFuture<List<CompareInfo>> topK(CompareIndex index, String string, int k, int minRate,
+            boolean scrollCompare, Consumer<? super List<CompareInfo>> progress) {
+
+        if(string == null || index.size() == 0 || string.length() == 0 || k <= 0) {
+            return CompletableFuture.completedFuture(new ArrayList<>());
+        }
+
+        return submit(new TopKQuery(Scorer.of(index), string, k, minRate, scrollCompare, progress));
+    }
+
+    /**
+     *  Completes with the {@code k} {@code String} objects in the {@code String} Array with the greatest compare rate
+     *  (if the rate is equal or greater to {@code minRate}), sorted from the most similar
+     *
+     * @param strings
+     *  The set of {@code String} objects, it must not change until the query is done
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param k
+     *  The greatest number of {@code CompareInfo} objects to return
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be considered similar
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  A future of a sorted list containing at most {@code k} {@code CompareInfo} objects, it can be cancelled
+     * @see Compare#topK(String[], String, int, int, boolean)
+     */
+    public CompletableFuture<List<CompareInfo>> topK(String[] strings, String string, int k, int minRate,
+            boolean scrollCompare) {
+        return topK(strings, string, k, minRate, scrollCompare, null);
+    }
+
+    /**
+     *  Completes with the {@code k} {@code String} objects in the {@code String} Array with the greatest compare rate
+     *  (if the rate is equal or greater to {@code minRate}), sorted from the most similar
+     *
+     * @param strings
+     *  The set of {@code String} objects, it must not change until the query is done
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param k
+     *  The greatest number of {@code CompareInfo} objects to return
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be considered similar
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @param progress
+     *  Gets the sorted list of the best {@code CompareInfo} objects found so far.
+     *  It is called on the thread of the query, it can be null
+     * @return
+     *  A future of a sorted list containing at most {@code k} {@code CompareInfo} objects, it can be cancelled
+     * @see Compare#topK(String[], String, int, int, boolean)
+     */
+    public CompletableFuture<List<CompareInfo>> topK(String[] strings, String string, int k, int minRate,
+            boolean scrollCompare, Consumer<? super List<CompareInfo>> progress) {
+
+        if(string == null || strings == null || strings.length == 0 || string.length() == 0 || k <= 0) {
+            return CompletableFuture.completedFuture(new ArrayList<>());
+        }
+
+        return submit(new TopKQuery(Scorer.of(strings), string, k, minRate, scrollCompare, progress));
+    }
+
+    /**
+     *  Compare the {@code String} parameter with every element of the index, and
+     *  completes with every similar {@code String} object with a rate equal or greater to {@code minRate}
+     *
+     * @param index
+     *  The set of {@code String} objects
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be considered similar
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  A future of a list containing all of the similar {@code String} objects, it can be cancelled
+     * @see CompareIndex#similarStrings(String, int, boolean)
+     */
+    public CompletableFuture<List<String>> similarStrings(CompareIndex index, String string, int minRate,
+            boolean scrollCompare) {
+        return strings(compareInfo(index, string, minRate, false, scrollCompare));
+    }
+
+    /**
+     *  Compare the {@code String} parameter with every element of the {@code String} Array, and
+     *  completes with every similar {@code String} object with a rate equal or greater to {@code minRate}
+     *
+     * @param strings
+     *  The set of {@code String} objects, it must not change until the query is done
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be considered similar
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  A future of a list containing all of the similar {@code String} objects, it can be cancelled
+     * @see Compare#similarStrings(String[], String, int, boolean)
+     */
+    public CompletableFuture<List<String>> similarStrings(String[] strings, String string, int minRate,
+            boolean scrollCompare) {
+        return strings(compareInfo(strings, string, minRate, false, scrollCompare));
+    }
+
+    /**
+     *  Completes with a compare rate for every {@code String} object in the index (if the rate
+     *  is equal or greater to {@code minRate}
+     *  This is not sorted!
+     *
+     * @param index
+     *  The set of {@code String} objects
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be considered similar
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  A future of a list containing the {@code CompareInfo} objects, it can be cancelled
+     * @see CompareIndex#compareInfo(String, int, boolean)
+     */
+    public CompletableFuture<List<CompareInfo>> compareInfo(CompareIndex index, String string, int minRate,
+            boolean scrollCompare) {
+        return compareInfo(index, string, minRate, minRate == -1, scrollCompare);
+    }
+
+    /**
+     *  Completes with a compare rate for every {@code String} object in the {@code String} Array (if the rate
+     *  is equal or greater to {@code minRate}
+     *  This is not sorted!
+     *
+     * @param strings
+     *  The set of {@code String} objects, it must not change until the query is done
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be considered similar
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  A future of a list containing the {@code CompareInfo} objects, it can be cancelled
+     * @see Compare#compareInfo(String[], String, int, boolean)
+     */
+    public CompletableFuture<List<CompareInfo>> compareInfo(String[] strings, String string, int minRate,
+            boolean scrollCompare) {
+        return compareInfo(strings, string, minRate, minRate == -1, scrollCompare);
+    }
+
+    private CompletableFuture<List<CompareInfo>> compareInfo(CompareIndex index, String string, int minRate,
+            boolean everyRate, boolean scrollCompare) {
+
+        if(string == null || index.size() == 0 || string.length() == 0) {
+            return CompletableFuture.completedFuture(new ArrayList<>());
+        }
+
+        return submit(new CompareInfoQuery(Scorer.of(index), string, minRate, everyRate, scrollCompare));
+    }
+
+    private CompletableFuture<List<CompareInfo>> compareInfo(String[] strings, String string, int minRate,
+            boolean everyRate, boolean scrollCompare) {
+
+        if(string == null || strings == null || strings.length == 0 || string.length() == 0) {
+            return CompletableFuture.completedFuture(new ArrayList<>());
+        }
+
+        return submit(new CompareInfoQuery(Scorer.of(strings), string, minRate, everyRate, scrollCompare));
+    }
+
+    /**
+     *  Maps a future of {@code CompareInfo} objects to their {@code String} objects. Cancelling the returned future
+     *  cancels the query too
+     */
+    private static CompletableFuture<List<String>> strings(CompletableFuture<List<CompareInfo>> infos) {
+        CompletableFuture<List<String>> strings = infos.thenApply(list -> {
+            List<String> result = new ArrayList<>(list.size());
+            for (CompareInfo info : list) {
+                result.add(info.s);
+            }
+            return result;
+        });
+        strings.whenComplete((result, error) -> infos.cancel(false));
+        return strings;
+    }
+
+    private <T> CompletableFuture<T> submit(Query<T> query) {
+        executor.execute(query);
+        return query.future;
+    }
+
+    /**
+     *  A query that compares the elements a chunk at a time, as long as its future is not done
+     */
+    private static abstract class Query<T> implements Runnable {
+
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        final Scorer scorer;
+        final String string;
+        final boolean scrollCompare;
+
+        char[] query;
+        long queryMask;
+
+        Query(Scorer scorer, String string, boolean scrollCompare) {
+            this.scorer = scorer;
+            this.string = string;
+            this.scrollCompare = scrollCompare;
+        }
+
+        @Override
+        public void run() {
+            if(future.isDone())
+                return;
+
+            try {
+                CompareMetrics metrics = Compare.metrics();
+                long start = metrics != null ? System.nanoTime() : 0L;
+
+                query = Compare.prepareToCompare(string).toCharArray();
+                queryMask = Compare.charMask(query, 0, query.length);
+
+                int size = scorer.size();
+                for (int from = 0; from < size; from += CHUNK_SIZE) {
+                    if(future.isDone())
+                        return;
+
+                    if(!compare(from, Math.min(size, from + CHUNK_SIZE)))
+                        break;
+                }
+
+                int found = found();
+                T result = result();
+                if(metrics != null)
+                    metrics.query(System.nanoTime() - start, found);
+                future.complete(result);
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        }
+
+        /**
+         *  Compares a chunk of elements, in order
+         *
+         * @param from
+         *  The position of the first element of the chunk
+         * @param to
+         *  The position after the last element of the chunk
+         * @return
+         *  False if the elements after the chunk can't change the result
+         */
+        abstract boolean compare(int from, int to);
+
+        abstract T result();
+
+        /**
+         * @return
+         *  The number of elements in the result, for {@link CompareMetrics}
+         */
+        abstract int found();
+    }
+
+    private static class SimilarStringQuery extends Query<String> {
+
+        private final int minRate;
+        private final Consumer<? super String> progress;
+
+        private int maxRate = Compare.LOWER_RATE, maxIndex = -1;
+        private boolean greater;
+
+        SimilarStringQuery(Scorer scorer, String string, int minRate, boolean scrollCompare,
+                Consumer<? super String> progress) {
+            super(scorer, string, scrollCompare);
+            this.minRate = minRate;
+            this.progress = progress;
+        }
+
+        @Override
+        boolean compare(int from, int to) {
+            int lastIndex = maxIndex;
+            for (int count = from; count < to; count++) {
+                int bound = scorer.bound(count, query, queryMask, scrollCompare);
+                if(bound < Compare.GREATER_RATE && bound <= maxRate)
+                    continue;
+
+                int rate = scorer.rate(count, query, scrollCompare);
+
+                if (rate == Compare.GREATER_RATE) {
+                    maxIndex = count;
+                    greater = true;
+                    return false;
+                }
+
+                if (maxRate < rate) {
+                    maxRate = rate;
+                    maxIndex = count;
+                }
+            }
+
+            if(progress != null && maxIndex != lastIndex && maxRate >= minRate && !future.isDone())
+                progress.accept(scorer.get(maxIndex));
+            return true;
+        }
+
+        @Override
+        String result() {
+            return greater || (maxIndex != -1 && maxRate >= minRate) ? scorer.get(maxIndex) : null;
+        }
+
+        @Override
+        int found() {
+            return greater || (maxIndex != -1 && maxRate >= minRate) ? 1 : 0;
+        }
+    }
+
+    private static class TopKQuery extends Query<List<CompareInfo>> {
+
+        private final int minRate;
+        private final RateHeap heap;
+        private final Consumer<? super List<CompareInfo>> progress;
+
+        TopKQuery(Scorer scorer, String string, int k, int minRate, boolean scrollCompare,
+                Consumer<? super List<CompareInfo>> progress) {
+            super(scorer, string, scrollCompare);
+            this.minRate = minRate;
+            this.heap = new RateHeap(Math.min(k, scorer.size()));
+            this.progress = progress;
+        }
+
+        @Override
+        boolean compare(int from, int to) {
+            boolean changed = false;
+            for (int count = from; count < to; count++) {
+                int bound = scorer.bound(count, query, queryMask, scrollCompare);
+                if(bound < minRate || !heap.accepts(bound, count))
+                    continue;
+
+                int result = scorer.rate(count, query, scrollCompare);
+                if(result >= minRate && heap.accepts(result, count)) {
+                    heap.offer(result, count);
+                    changed = true;
+                }
+            }
+
+            if(progress != null && changed && !future.isDone())
+                progress.accept(new ArrayList<>(new CompareResults(scorer::get, heap.peek()).asList()));
+            return true;
+        }
+
+        @Override
+        List<CompareInfo> result() {
+            return new ArrayList<>(new CompareResults(scorer::get, heap.toArray()).asList());
+        }
+
+        @Override
+        int found() {
+            return heap.size();
+        }
+    }
+
+    private static class CompareInfoQuery extends Query<List<CompareInfo>> {
+
+        private final int minRate;
+        private final boolean everyRate;
+        private final CompareResults results;
+
+        CompareInfoQuery(Scorer scorer, String string, int minRate, boolean everyRate, boolean scrollCompare) {
+            super(scorer, string, scrollCompare);
+            this.minRate = minRate;
+            this.everyRate = everyRate;
+            this.results = new CompareResults(scorer::get, 16);
+        }
+
+        @Override
+        boolean compare(int from, int to) {
+            for (int count = from; count < to; count++) {
+                if(!everyRate && scorer.bound(count, query, queryMask, scrollCompare) < minRate)
+                    continue;
+
+                int result = scorer.rate(count, query, scrollCompare);
+                if (everyRate || result >= minRate)
+                    results.add(count, result);
+            }
+            return true;
+        }
+
+        @Override
+        List<CompareInfo> result() {
+            return new ArrayList<>(results.asList());
+        }
+
+        @Override
+        int found() {
+            return results.size();
+        }
+    }
+}
@@ -0,0 +1,384 @@
+package ohi.andre.comparestring;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import ohi.andre.comparestring.Compare.CompareInfo;
+
+/**
+ *  A set of {@code String} objects that finds the elements within an edit distance from a query.
+ *  The elements are prepared as {@link Compare} does, and the different prepared forms are the nodes of a BK-tree:
+ *  every child is at a known distance from its parent, so by the triangle inequality a query within {@code k}
+ *  of a node at distance {@code d} only visits the children at a distance from {@code d - k} to {@code d + k}.
+ *  <p>
+ *  The distance is the Levenshtein distance, or the optimal string alignment distance when transpositions of
+ *  two adjacent chars are counted as one edit. A node is compared only on the diagonals that can give a distance
+ *  the query needs, and the comparison stops as soon as every diagonal is over it.
+ *  <p>
+ *  The optimal string alignment distance doesn't respect the triangle inequality, so the tree is always built
+ *  with the Levenshtein distance. A transposition is at most two Levenshtein edits: with transpositions, a query
+ *  within {@code k} looks for the nodes within {@code 2 * k} in the tree, and then computes their distance.
+ *  <p>
+ *  Null and empty elements have no prepared form, they are never returned.
+ *  An instance is immutable and thread safe
+ */
+public class BKTreeIndex {
+
+    private final String[] strings;
+    private final boolean transpositions;
+
+    /**
+     * The prepared form of every node, from offsets[node] to offsets[node + 1]
+     */
+    private final char[] chars;
+    private final int[] offsets;
+
+    /**
+     * The children of a node are a list: from firstChild[node] through nextSibling, -1 at the end.
+     * The distance of a node from its parent, and the greatest distance of its children
+     */
+    private final int[] firstChild;
+    private final int[] nextSibling;
+    private final int[] parentDistance;
+    private final int[] maxChildDistance;
+
+    /**
+     * The positions of the elements of a node go from postingStarts[node] to postingStarts[node + 1] in postings
+     */
+    private final int[] postingStarts;
+    private final int[] postings;
+
+    /**
+     *  Construct a new instance of {@code BKTreeIndex} using the Levenshtein distance
+     *
+     * @param strings
+     *  The set of {@code String} objects. The array is copied, later changes are not seen by the index
+     */
+    public BKTreeIndex(String[] strings) {
+        this(strings, false);
+    }
+
+    /**
+     *  Construct a new instance of {@code BKTreeIndex}
+     *
+     * @param strings
+     *  The set of {@code String} objects. The array is copied, later changes are not seen by the index
+     * @param transpositions
+     *  Count a transposition of two adjacent chars as a single edit
+     */
+    public BKTreeIndex(String[] strings, boolean transpositions) {
+        this.strings = strings.clone();
+        this.transpositions = transpositions;
+
+        String[] prepared = CompareIndex.prepare(this.strings);
+        Map<String, Integer> nodeOf = new HashMap<>();
+        List<String> keys = new ArrayList<>();
+        int[] nodes = new int[prepared.length];
+        int length = 0;
+        for (int count = 0; count < prepared.length; count++) {
+            if(prepared[count] == null) {
+                nodes[count] = -1;
+                continue;
+            }
+
+            Integer node = nodeOf.get(prepared[count]);
+            if(node == null) {
+                node = keys.size();
+                nodeOf.put(prepared[count], node);
+                keys.add(prepared[count]);
+                length += prepared[count].length();
+            }
+            nodes[count] = node;
+        }
+
+        int size = keys.size();
+        this.chars = new char[length];
+        this.offsets = new int[size + 1];
+        for (int node = 0, offset = 0; node < size; node++) {
+            offsets[node] = offset;
+            keys.get(node).getChars(0, keys.get(node).length(), chars, offset);
+            offset += keys.get(node).length();
+        }
+        offsets[size] = length;
+
+        this.postingStarts = new int[size + 1];
+        for (int node : nodes) {
+            if(node != -1)
+                postingStarts[node + 1]++;
+        }
+        for (int node = 0; node < size; node++) {
+            postingStarts[node + 1] += postingStarts[node];
+        }
+        this.postings = new int[postingStarts[size]];
+        int[] ends = Arrays.copyOf(postingStarts, size);
+        for (int count = 0; count < nodes.length; count++) {
+            if(nodes[count] != -1)
+                postings[ends[nodes[count]]++] = count;
+        }
+
+        this.firstChild = new int[size];
+        this.nextSibling = new int[size];
+        this.parentDistance = new int[size];
+        this.maxChildDistance = new int[size];
+        Arrays.fill(firstChild, -1);
+        Arrays.fill(nextSibling, -1);
+
+        int[][] rows = new int[3][];
+        for (int node = 1; node < size; node++) {
+            insert(node, rows);
+        }
+    }
+
+    /**
+     *  Construct a new instance of {@code BKTreeIndex}
+     *
+     * @param strings
+     *  The set of {@code String} objects
+     * @param transpositions
+     *  Count a transposition of two adjacent chars as a single edit
+     */
+    public BKTreeIndex(Collection<String> strings, boolean transpositions) {
+        this(strings.toArray(new String[strings.size()]), transpositions);
+    }
+
+    /**
+     *  Get the number of {@code String} objects in the index
+     *
+     * @return
+     *  The size of the set of {@code String} objects
+     */
+    public int size() {
+        return strings.length;
+    }
+
+    /**
+     *  Get an element of the index
+     *
+     * @param index
+     *  The position of the element
+     * @return
+     *  The {@code String} object at the given position, as it was given to the index
+     */
+    public String get(int index) {
+        return strings[index];
+    }
+
+    /**
+     *  Returns every element of the index within an edit distance from the {@code String} parameter,
+     *  sorted from the closest. Elements at the same distance keep the order of the index
+     *
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param maxDistance
+     *  The greatest edit distance between the prepared forms of an element and of {@code string}
+     * @return
+     *  A list containing all of the {@code String} objects found
+     */
+    public List<String> similarStrings(String string, int maxDistance) {
+        long[] found = find(string, maxDistance);
+        List<String> list = new ArrayList<>(found.length);
+        for (long f : found) {
+            list.add(strings[(int) f]);
+        }
+        return list;
+    }
+
+    /**
+     *  Returns a {@code CompareInfo} object for every element of the index within an edit distance from
+     *  the {@code String} parameter, sorted from the closest. Elements at the same distance keep the order of the index.
+     *  The rate of an element is its distance with a negative sign, so a greater rate is still a better match
+     *  and the list is sorted as {@link CompareInfo#compareTo(CompareInfo)} does
+     *
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param maxDistance
+     *  The greatest edit distance between the prepared forms of an element and of {@code string}
+     * @return
+     *  A list containing the {@code CompareInfo} objects of the elements found
+     */
+    public List<CompareInfo> compareInfo(String string, int maxDistance) {
+        long[] found = find(string, maxDistance);
+        List<CompareInfo> infos = new ArrayList<>(found.length);
+        for (long f : found) {
+            infos.add(new CompareInfo(strings[(int) f], (int) -(f >>> 32)));
+        }
+        return infos;
+    }
+
+    /**
+     *  Gives the edit distance used by this index between two {@code String} objects
+     *
+     * @param string1
+     *  The first {@code String} object
+     * @param string2
+     *  The second {@code String} object
+     * @return
+     *  The edit distance between the prepared forms of the two {@code String} objects
+     */
+    public int distance(String string1, String string2) {
+        char[] prepared1 = Compare.prepareToCompare(string1).toCharArray();
+        char[] prepared2 = Compare.prepareToCompare(string2).toCharArray();
+        int limit = Math.max(prepared1.length, prepared2.length);
+        return distance(prepared1, 0, prepared1.length, prepared2, 0, prepared2.length, limit, transpositions, new int[3][]);
+    }
+
+    /**
+     *  Finds the elements within {@code maxDistance}
+     *
+     * @return
+     *  The distance of every element found in the high 32 bits and its position in the low 32 bits, sorted
+     */
+    private long[] find(String string, int maxDistance) {
+        if(string == null || string.length() == 0 || maxDistance < 0 || offsets.length == 1) {
+            return new long[0];
+        }
+
+        char[] query = Compare.prepareToCompare(string).toCharArray();
+        int[][] rows = new int[3][];
+
+        // clamped so that 2 * maxDistance plus the distance of a child can't overflow
+        maxDistance = Math.min(maxDistance, Integer.MAX_VALUE / 4);
+        int treeDistance = transpositions ? 2 * maxDistance : maxDistance;
+
+        long[] found = new long[16];
+        int size = 0;
+        int[] stack = new int[16];
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+
+            // a node farther than this has no children within treeDistance of the query
+            int offset = offsets[node], length = offsets[node + 1] - offset;
+            int limit = treeDistance + maxChildDistance[node];
+            int d = distance(chars, offset, length, query, 0, query.length, limit, false, rows);
+
+            if(d <= treeDistance) {
+                int exact = transpositions ? distance(chars, offset, length, query, 0, query.length, maxDistance, true, rows) : d;
+                for (int p = postingStarts[node]; exact <= maxDistance && p < postingStarts[node + 1]; p++) {
+                    if(size == found.length)
+                        found = Arrays.copyOf(found, size * 2);
+                    found[size++] = ((long) exact << 32) | postings[p];
+                }
+            }
+
+            for (int child = firstChild[node]; child != -1; child = nextSibling[child]) {
+                if(Math.abs(parentDistance[child] - d) <= treeDistance) {
+                    if(top == stack.length)
+                        stack = Arrays.copyOf(stack, top * 2);
+                    stack[top++] = child;
+                }
+            }
+        }
+
+        found = Arrays.copyOf(found, size);
+        Arrays.sort(found);
+        return found;
+    }
+
+    /**
+     *  Adds a node to the tree, as a child of the first node at its Levenshtein distance on the path from the root
+     */
+    private void insert(int node, int[][] rows) {
+        int length = offsets[node + 1] - offsets[node];
+        int current = 0;
+        while (true) {
+            int currentLength = offsets[current + 1] - offsets[current];
+            int d = distance(chars, offsets[current], currentLength, chars, offsets[node], length,
+                    Math.max(currentLength, length), false, rows);
+
+            int child = firstChild[current];
+            while (child != -1 && parentDistance[child] != d) {
+                child = nextSibling[child];
+            }
+
+            if(child == -1) {
+                parentDistance[node] = d;
+                nextSibling[node] = firstChild[current];
+                firstChild[current] = node;
+                maxChildDistance[current] = Math.max(maxChildDistance[current], d);
+                return;
+            }
+            current = child;
+        }
+    }
+
+    /**
+     *  Gives the edit distance of two sequences of chars, if it is not greater than a limit.
+     *  Only the cells of the matrix at most {@code limit} diagonals away from the main one are computed,
+     *  and the computation stops when a whole row is over the limit
+     *
+     * @param a
+     *  The array containing the first sequence
+     * @param aOffset
+     *  The index of the first char of the first sequence
+     * @param aLength
+     *  The length of the first sequence
+     * @param b
+     *  The array containing the second sequence
+     * @param bOffset
+     *  The index of the first char of the second sequence
+     * @param bLength
+     *  The length of the second sequence
+     * @param limit
+     *  The greatest distance that has to be exact
+     * @param transpositions
+     *  Count a transposition of two adjacent chars as a single edit
+     * @param rows
+     *  Three rows of the matrix, reused between the calls
+     * @return
+     *  The distance, or {@code limit + 1} if it is greater than {@code limit}
+     */
+    static int distance(char[] a, int aOffset, int aLength, char[] b, int bOffset, int bLength,
+            int limit, boolean transpositions, int[][] rows) {
+
+        if(Math.abs(aLength - bLength) > limit)
+            return limit + 1;
+
+        int over = limit + 1;
+        for (int r = 0; r < 3; r++) {
+            if(rows[r] == null || rows[r].length < bLength + 2)
+                rows[r] = new int[bLength + 2];
+        }
+        int[] before = rows[0], previous = rows[1], current = rows[2];
+
+        for (int j = 0; j <= bLength + 1; j++) {
+            previous[j] = j <= limit ? j : over;
+        }
+
+        for (int i = 1; i <= aLength; i++) {
+            int lo = Math.max(1, i - limit), hi = Math.min(bLength, i + limit);
+            current[lo - 1] = lo == 1 && i <= limit ? i : over;
+            int rowMin = current[lo - 1];
+
+            char c = a[aOffset + i - 1];
+            for (int j = lo; j <= hi; j++) {
+                int v = previous[j - 1] + (c == b[bOffset + j - 1] ? 0 : 1);
+                v = Math.min(v, previous[j] + 1);
+                v = Math.min(v, current[j - 1] + 1);
+
+                if(transpositions && i > 1 && j > 1 && c == b[bOffset + j - 2] && a[aOffset + i - 2] == b[bOffset + j - 1])
+                    v = Math.min(v, before[j - 2] + 1);
+
+                current[j] = Math.min(v, over);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if(hi < bLength)
+                current[hi + 1] = over;
+
+            if(rowMin > limit)
+                return over;
+
+            int[] recycled = before;
+            before = previous;
+            previous = current;
+            current = recycled;
+        }
+
+        return Math.min(previous[bLength], over);
+    }
+}
@@ -0,0 +1,254 @@
+package ohi.andre.comparestring;
+
+/**
+ *  Compares two prepared sequences in scrolling mode with the windows in the bits of a {@code long}:
+ *  up to 64 windows of the longer sequence are compared to the shorter one at the same time.
+ *  For every char of the shorter sequence the masks of the windows where it matches the char of the longer
+ *  sequence before, at and after its position are read from a bitset of the longer sequence, then the
+ *  steps of {@link Compare#linearSteps(char[], int, int, char[], int, int)} are resolved for every window
+ *  with bitwise operations, and the matched chars of every window are counted in bit-sliced counters.
+ *  <p>
+ *  Every step adds 1.5 or subtracts 0.5, so the points of a window are exact in a {@code float} and
+ *  only depend on the number of matched chars: the rate is the same of the scalar loop, bit for bit.
+ *  <p>
+ *  The system property {@code ohi.andre.comparestring.kernel} selects the implementation: {@code scalar}
+ *  always uses the scalar loop, {@code bitparallel} uses this one whenever the sequences fit the scratch buffers,
+ *  and by default it is used when there are at least {@link #MIN_WINDOWS} windows and the scalar loop would read
+ *  more chars than {@link #SCALAR_COST} times the length of the longer sequence
+ */
+final class BitParallelScroll {
+
+    static final String KERNEL_PROPERTY = "ohi.andre.comparestring.kernel";
+
+    static final int MIN_WINDOWS = 32;
+
+    /**
+     * How many chars the scalar loop reads in the time this class reads a char of the longer sequence
+     */
+    private static final int SCALAR_COST = 4;
+
+    /**
+     * The greatest number of longs of the bitsets of a comparison, so the scratch buffers of a thread stay small
+     */
+    private static final int MAX_BITSET_WORDS = 1 << 14;
+
+    private static final int MODE_AUTO = 0;
+    private static final int MODE_SCALAR = 1;
+    private static final int MODE_BIT_PARALLEL = 2;
+    private static final int MODE = mode(System.getProperty(KERNEL_PROPERTY));
+
+    private static final ThreadLocal<BitParallelScroll> SCRATCH = ThreadLocal.withInitial(BitParallelScroll::new);
+
+    /**
+     * The bitsets of the positions of the longer sequence where every different char of the shorter one is,
+     * the bitset of the slot s goes from s * words to (s + 1) * words
+     */
+    private long[] bitsets = new long[64];
+
+    /**
+     * The slot of every char of the shorter sequence
+     */
+    private int[] slots = new int[16];
+
+    /**
+     * An open addressing table from the different chars of the shorter sequence to their slot + 1
+     */
+    private char[] tableChars = new char[32];
+    private int[] tableSlots = new int[32];
+
+    private long[] counters = new long[32];
+
+    private BitParallelScroll() {}
+
+    /**
+     *  Tells if two sequences are compared by this class
+     *
+     * @param maxLength
+     *  The length of the longer sequence
+     * @param minLength
+     *  The length of the shorter sequence
+     * @return
+     *  True if {@link #scrollCompare(char[], int, int, char[], int, int)} should be used
+     */
+    static boolean accepts(int maxLength, int minLength) {
+        if(MODE == MODE_SCALAR || minLength == 0 || (long) minLength * words(maxLength) > MAX_BITSET_WORDS)
+            return false;
+
+        if(MODE == MODE_BIT_PARALLEL)
+            return true;
+
+        // after the first window the scalar loop has a rate of at least -0.5 points for every char,
+        // so it stops within 3 windows for every char of the shorter sequence
+        int windows = maxLength - minLength + 1;
+        return windows >= MIN_WINDOWS && (long) minLength * Math.min(windows, 3 * minLength) > (long) SCALAR_COST * maxLength;
+    }
+
+    /**
+     *  Compares two prepared sequences in scrolling mode
+     *
+     * @param max
+     *  The array containing the longer sequence
+     * @param maxOffset
+     *  The index of the first char of the longer sequence
+     * @param maxLength
+     *  The length of the longer sequence
+     * @param min
+     *  The array containing the shorter sequence, it must not be empty
+     * @param minOffset
+     *  The index of the first char of the shorter sequence
+     * @param minLength
+     *  The length of the shorter sequence
+     * @return
+     *  The same compare rate of {@link Compare#scalarScrollCompare(char[], int, int, char[], int, int)}
+     */
+    static float scrollCompare(char[] max, int maxOffset, int maxLength, char[] min, int minOffset, int minLength) {
+        return SCRATCH.get().compare(max, maxOffset, maxLength, min, minOffset, minLength);
+    }
+
+    private float compare(char[] max, int maxOffset, int maxLength, char[] min, int minOffset, int minLength) {
+        int words = words(maxLength);
+        fill(max, maxOffset, maxLength, min, minOffset, minLength, words);
+
+        int planes = 32 - Integer.numberOfLeadingZeros(minLength);
+        int windows = maxLength - minLength + 1;
+        float best = Compare.COMPARE_BASE_VALUE * minLength;
+        float n = Compare.LOWER_RATE;
+        int scanned = 0;
+        for (int first = 0; first < windows && best - Compare.scrollPenalty(first) > n; first += 64) {
+            for (int k = 0; k < planes; k++) {
+                counters[k] = 0L;
+            }
+
+            long previous = 0L, current = 0L;
+            for (int count = 0; count < minLength; count++) {
+                int bitset = slots[count] * words;
+                long before = count > 0 ? bits(bitset, first + count - 1) : 0L;
+                long at = bits(bitset, first + count);
+                long after = count + 1 < minLength ? bits(bitset, first + count + 1) : 0L;
+
+                long matchedBefore = before & ~previous;
+                long matchedAt = at & ~current & ~matchedBefore;
+                long matchedAfter = after & ~matchedBefore & ~matchedAt;
+
+                previous = current | matchedAt;
+                current = matchedAfter;
+
+                long carry = matchedBefore | matchedAt | matchedAfter;
+                for (int k = 0; k < planes && carry != 0L; k++) {
+                    long plane = counters[k];
+                    counters[k] = plane ^ carry;
+                    carry &= plane;
+                }
+            }
+
+            int lanes = Math.min(64, windows - first);
+            for (int lane = 0; lane < lanes; lane++) {
+                // the penalty grows with the window, so the next windows can't beat n even if every char matches
+                if(best - Compare.scrollPenalty(first + lane) <= n)
+                    break;
+                scanned++;
+
+                int matched = 0;
+                for (int k = 0; k < planes; k++) {
+                    matched |= (int) ((counters[k] >>> lane) & 1L) << k;
+                }
+
+                float x = Compare.COMPARE_BASE_VALUE * matched - Compare.COMPARE_SUBTRACT_VALUE * (minLength - matched);
+                x -= Compare.scrollPenalty(first + lane);
+
+                if(x > n)
+                    n = x;
+            }
+        }
+
+        CompareMetrics metrics = Compare.metrics();
+        if(metrics != null)
+            metrics.windows(scanned);
+        return n;
+    }
+
+    /**
+     *  Builds the bitsets of the different chars of the shorter sequence, and the slot of every char
+     */
+    private void fill(char[] max, int maxOffset, int maxLength, char[] min, int minOffset, int minLength, int words) {
+        if(slots.length < minLength)
+            slots = new int[Math.max(minLength, slots.length * 2)];
+
+        int tableSize = Integer.highestOneBit(minLength * 2 - 1) << 1;
+        if(tableChars.length < tableSize) {
+            tableChars = new char[tableSize];
+            tableSlots = new int[tableSize];
+        }
+        int tableMask = tableSize - 1;
+        for (int t = 0; t < tableSize; t++) {
+            tableSlots[t] = 0;
+        }
+
+        int slotCount = 0;
+        for (int count = 0; count < minLength; count++) {
+            char c = min[minOffset + count];
+            int t = c & tableMask;
+            while (tableSlots[t] != 0 && tableChars[t] != c) {
+                t = (t + 1) & tableMask;
+            }
+
+            if(tableSlots[t] == 0) {
+                tableChars[t] = c;
+                tableSlots[t] = ++slotCount;
+            }
+            slots[count] = tableSlots[t] - 1;
+        }
+
+        if(bitsets.length < slotCount * words)
+            bitsets = new long[Math.max(slotCount * words, bitsets.length * 2)];
+        for (int w = 0; w < slotCount * words; w++) {
+            bitsets[w] = 0L;
+        }
+
+        for (int position = 0; position < maxLength; position++) {
+            char c = max[maxOffset + position];
+            int t = c & tableMask;
+            while (tableSlots[t] != 0 && tableChars[t] != c) {
+                t = (t + 1) & tableMask;
+            }
+
+            if(tableSlots[t] != 0)
+                bitsets[(tableSlots[t] - 1) * words + (position >>> 6)] |= 1L << position;
+        }
+    }
+
+    /**
+     *  Get 64 bits of a bitset
+     *
+     * @param bitset
+     *  The index of the first long of the bitset in {@link #bitsets}
+     * @param position
+     *  The position of the first bit
+     * @return
+     *  The bits from {@code position} to {@code position + 63}, in the same order
+     */
+    private long bits(int bitset, int position) {
+        int word = bitset + (position >>> 6);
+        int shift = position & 63;
+        if(shift == 0)
+            return bitsets[word];
+
+        return (bitsets[word] >>> shift) | (bitsets[word + 1] << (64 - shift));
+    }
+
+    /**
+     *  Get the number of longs of a bitset of the longer sequence. The last block of windows
+     *  reads up to 64 bits after the end of the sequence, that are always 0
+     */
+    private static int words(int maxLength) {
+        return (maxLength >>> 6) + 2;
+    }
+
+    private static int mode(String property) {
+        if("scalar".equals(property))
+            return MODE_SCALAR;
+        if("bitparallel".equals(property))
+            return MODE_BIT_PARALLEL;
+        return MODE_AUTO;
+    }
+}
@@ -1,11 +1,14 @@
 package ohi.andre.comparestring;
 
-import java.text.Normalizer;
-import java.text.Normalizer.Form;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
-import java.util.regex.Pattern;
+import java.util.ListIterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  *
@@ -13,15 +16,106 @@ import java.util.regex.Pattern;
  */
 public class Compare {
 
-    private static final int GREATER_RATE = 1000;
-    private static final int LOWER_RATE = -100;
-    private static final float COMPARE_BASE_VALUE = 1.5f;
-    private static final float COMPARE_SUBTRACT_VALUE = 0.5f;
-    private static final float SCROLL_COMPARE_SCALE = 2f / 3f;
-    private static final float LENGTH_SCALE = 0.2f;
-    private static final String SPACE_REGEXP = "\\s";
-    private static final String EMPTYSTRING = "";
-    private static final String ACCENTS_PATTERN = "\\p{InCombiningDiacriticalMarks}+";
+    static final int GREATER_RATE = 1000;
+    static final int LOWER_RATE = -100;
+    static final float COMPARE_BASE_VALUE = 1.5f;
+    static final float COMPARE_SUBTRACT_VALUE = 0.5f;
+    static final float SCROLL_COMPARE_SCALE = 2f / 3f;
+    static final float LENGTH_SCALE = 0.2f;
+
+    static final int STEP_PREVIOUS = 1;
+    static final int STEP_CURRENT = 2;
+    static final int STEP_MATCHED = 4;
+
+    /**
+     * The preparers of the thread, shared with Comparer: the first one for the elements, the second one for the query
+     */
+    static final ThreadLocal<Preparer[]> PREPARERS = new ThreadLocal<Preparer[]>() {
+        @Override
+        protected Preparer[] initialValue() {
+            return new Preparer[] {new Preparer(), new Preparer()};
+        }
+    };
+
+    private static final ThreadLocal<char[]> SCRATCH = new ThreadLocal<char[]>() {
+        @Override
+        protected char[] initialValue() {
+            return new char[16];
+        }
+    };
+
+    private static final ThreadLocal<byte[]> BYTE_SCRATCH = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[16];
+        }
+    };
+
+    /**
+     * Returned by foldedCompare when the strings have to be compared with String#toLowerCase
+     */
+    private static final int UNFOLDED = 2;
+
+    private static volatile CompareCache cache;
+
+    private static volatile CompareMetrics metrics;
+
+    /**
+     *  Sets the cache of the prepared {@code String} objects used by the static methods.
+     *  Results are never cached, since the {@code String} sets can change between two calls
+     *
+     * @param cache
+     *  The cache, or null to cache nothing
+     */
+    public static void setCache(CompareCache cache) {
+        Compare.cache = cache;
+    }
+
+    /**
+     *  Get the cache of the prepared {@code String} objects used by the static methods
+     *
+     * @return
+     *  The cache, or null if nothing is cached
+     */
+    public static CompareCache getCache() {
+        return cache;
+    }
+
+    /**
+     *  Sets the counters of the work done by the queries
+     *
+     * @param metrics
+     *  The counters, or null to count nothing
+     * @throws IllegalStateException
+     *  If the hooks were not compiled, see {@link CompareMetrics#isEnabled()}
+     */
+    public static void setMetrics(CompareMetrics metrics) {
+        if(!CompareMetrics.ENABLED && metrics != null)
+            throw new IllegalStateException("Metrics are disabled, set -D" + CompareMetrics.METRICS_PROPERTY + "=true");
+
+        Compare.metrics = metrics;
+    }
+
+    /**
+     *  Get the counters of the work done by the queries
+     *
+     * @return
+     *  The counters, or null if nothing is counted
+     */
+    public static CompareMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     *  Get the counters used by the hooks. When they are not compiled this is a constant null,
+     *  so the branches of the hooks are removed
+     *
+     * @return
+     *  The counters, or null if nothing is counted
+     */
+    static CompareMetrics metrics() {
+        return CompareMetrics.ENABLED ? metrics : null;
+    }
     
     /**
      *  Compare the {@code String} parameter to every element of the {@code String} Array, and
@@ -45,7 +139,17 @@ public class Compare {
         if(string == null || strings == null || strings.length == 0 || string.length() == 0) {
             return null;
         }
-        
+
+        CompareMetrics metrics = metrics();
+        long start = metrics != null ? System.nanoTime() : 0L;
+        int index = similarIndex(strings, string, minRate, scrollCompare);
+        if(metrics != null)
+            metrics.query(System.nanoTime() - start, index == -1 ? 0 : 1);
+
+        return index == -1 ? null : strings[index];
+    }
+
+    private static int similarIndex(String[] strings, String string, int minRate, boolean scrollCompare) {
         int maxRate = LOWER_RATE, maxIndex = -1;
         for (int count = 0; count < strings.length; count++) {
             String currentString = strings[count];
@@ -53,7 +157,7 @@ public class Compare {
                     linearComparison(currentString, string);
 
             if (rate == GREATER_RATE) {
-                return currentString;   
+                return count;
             }
 
             if (maxRate < rate) {
@@ -63,10 +167,10 @@ public class Compare {
         }
 
         if (maxRate < minRate || maxIndex == -1) {
-            return null;
+            return -1;
         }
         
-        return strings[maxIndex];
+        return maxIndex;
     }
     
     /**
@@ -145,11 +249,19 @@ public class Compare {
             return;
         }
         
+        CompareMetrics metrics = metrics();
+        long start = metrics != null ? System.nanoTime() : 0L;
+        int found = 0;
         for (String current : strings) {
             int result = scrollCompare ? scrollComparison(current, string) : linearComparison(current, string);
-            if (result >= minRate)
+            if (result >= minRate) {
                 similarStrings.add(current);
+                found++;
+            }
         }
+
+        if(metrics != null)
+            metrics.query(System.nanoTime() - start, found);
     }
     
     /**
@@ -169,7 +281,11 @@ public class Compare {
      */
     public static void similarStrings(List<String> similarStrings, Collection<String> strings, String string, 
             int minRate, boolean scrollCompare) {
-        similarStrings(similarStrings, strings.toArray(new String[strings.size()]), string, minRate, scrollCompare);
+        if(similarStrings == null) {
+            return;
+        }
+
+        similarStrings(similarStrings::add, strings.iterator(), string, minRate, scrollCompare);
     }
     
     /**
@@ -209,7 +325,99 @@ public class Compare {
      *  A list containing all of the similar {@code String} objects
      */
     public static List<String> similarStrings(Collection<String> strings, String string, int minRate, boolean scrollCompare) {
-        return similarStrings(strings.toArray(new String[strings.size()]), string, minRate, scrollCompare);
+        List<String> list = new ArrayList<>();
+        similarStrings(list, strings, string, minRate, scrollCompare);
+        return list;
+    }
+
+    /**
+     *  Compare the {@code String} parameter with every element given by the {@code Iterator}, and
+     *  passes every similar {@code String} object with a rate greater than {@code minRate} to a {@code Consumer}.
+     *  Elements are compared one at a time while they are given, and nothing is kept after they are compared
+     *
+     * @param similarStrings
+     *  Similar {@code String} objects will be passed here, in the order of the {@code Iterator}
+     * @param strings
+     *  The set of {@code String} objects
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be considered similar
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     */
+    public static void similarStrings(Consumer<? super String> similarStrings, Iterator<String> strings, String string,
+            int minRate, boolean scrollCompare) {
+
+        if(similarStrings == null || strings == null || string == null || string.length() == 0) {
+            return;
+        }
+
+        CompareMetrics metrics = metrics();
+        long start = metrics != null ? System.nanoTime() : 0L;
+        int found = 0;
+        char[] query = prepareToCompare(string).toCharArray();
+        while (strings.hasNext()) {
+            String current = strings.next();
+            if (rate(current, query, scrollCompare) >= minRate) {
+                similarStrings.accept(current);
+                found++;
+            }
+        }
+
+        if(metrics != null)
+            metrics.query(System.nanoTime() - start, found);
+    }
+
+    /**
+     *  Compare the {@code String} parameter with every element of the {@code Iterable}, and
+     *  passes every similar {@code String} object with a rate greater than {@code minRate} to a {@code Consumer}.
+     *  Elements are compared one at a time while they are iterated, and nothing is kept after they are compared
+     *
+     * @param similarStrings
+     *  Similar {@code String} objects will be passed here, in the order of the {@code Iterable}
+     * @param strings
+     *  The set of {@code String} objects
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be considered similar
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     */
+    public static void similarStrings(Consumer<? super String> similarStrings, Iterable<String> strings, String string,
+            int minRate, boolean scrollCompare) {
+        if(strings == null) {
+            return;
+        }
+
+        similarStrings(similarStrings, strings.iterator(), string, minRate, scrollCompare);
+    }
+
+    /**
+     *  Compare the {@code String} parameter with every element of the {@code Stream}, and
+     *  returns a lazy {@code Stream} of every similar {@code String} object with a rate greater than {@code minRate}.
+     *  Elements are compared only when the returned {@code Stream} is consumed, and it can be parallel.
+     *  The query has no end that {@link CompareMetrics} could record, only its comparisons are counted
+     *
+     * @param strings
+     *  The set of {@code String} objects
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be considered similar
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  A {@code Stream} of the similar {@code String} objects
+     */
+    public static Stream<String> similarStrings(Stream<String> strings, String string, int minRate, boolean scrollCompare) {
+        if(string == null || string.length() == 0) {
+            return Stream.<String>empty().onClose(strings::close);
+        }
+
+        char[] query = prepareToCompare(string).toCharArray();
+        return strings.filter(current -> rate(current, query, scrollCompare) >= minRate);
     }
     
     /**
@@ -235,12 +443,45 @@ public class Compare {
             return;
         }
         
-        for (String current : strings) {
-            int result = scrollCompare ? scrollComparison(current, string) : linearComparison(current, string);
+        compareInfoList.addAll(compareResults(strings, string, minRate, scrollCompare).asList());
+    }
+
+    /**
+     *  Returns a compare rate for every {@code String} object in the {@code String} Array (if the rate
+     *  is equal or greater to {@code minRate}) in primitive arrays, without a {@code CompareInfo} object for every element.
+     *  The Array is not copied, so it must not be changed while the results are read.
+     *  This is not sorted!
+     *
+     * @param strings
+     *  The set of {@code String} objects
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be considered similar
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  The positions in the Array and the rates of the same elements of {@link #compareInfo(String[], String, int, boolean)}
+     */
+    public static CompareResults compareResults(String[] strings, String string, int minRate, boolean scrollCompare) {
+        if(strings == null || string == null || strings.length == 0 || string.length() == 0) {
+            return new CompareResults(index -> strings[index], 0);
+        }
+
+        CompareMetrics metrics = metrics();
+        long start = metrics != null ? System.nanoTime() : 0L;
+        CompareResults results = new CompareResults(index -> strings[index], 16);
+        char[] query = prepareToCompare(string).toCharArray();
+        for (int count = 0; count < strings.length; count++) {
+            int result = rate(strings[count], query, scrollCompare);
 
             if (minRate == -1 || result >= minRate)
-                compareInfoList.add(new CompareInfo(current, result));
+                results.add(count, result);
         }
+
+        if(metrics != null)
+            metrics.query(System.nanoTime() - start, results.size());
+        return results;
     }
     
     /**
@@ -261,7 +502,104 @@ public class Compare {
      */
     public static void compareInfo(List<CompareInfo> compareInfoList, Collection<String> strings, String string, 
             int minRate, boolean scrollCompare) {
-        compareInfo(compareInfoList, strings.toArray(new String[strings.size()]), string, minRate, scrollCompare);
+        if(compareInfoList == null) {
+            return;
+        }
+
+        compareInfo(compareInfoList::add, strings.iterator(), string, minRate, scrollCompare);
+    }
+
+    /**
+     *  Returns a compare rate for every element given by the {@code Iterator} (if the rate
+     *  is equal or greater to {@code minRate}) to a {@code Consumer}.
+     *  Elements are compared one at a time while they are given, and nothing is kept after they are compared
+     *
+     * @param compareInfoList
+     *  The method will pass here the {@code CompareInfo} objects, in the order of the {@code Iterator}
+     * @param strings
+     *  The set of {@code String} objects
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be considered similar
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     */
+    public static void compareInfo(Consumer<? super CompareInfo> compareInfoList, Iterator<String> strings, String string,
+            int minRate, boolean scrollCompare) {
+
+        if(compareInfoList == null || strings == null || string == null || string.length() == 0) {
+            return;
+        }
+
+        CompareMetrics metrics = metrics();
+        long start = metrics != null ? System.nanoTime() : 0L;
+        int found = 0;
+        char[] query = prepareToCompare(string).toCharArray();
+        while (strings.hasNext()) {
+            String current = strings.next();
+            int result = rate(current, query, scrollCompare);
+
+            if (minRate == -1 || result >= minRate) {
+                compareInfoList.accept(new CompareInfo(current, result));
+                found++;
+            }
+        }
+
+        if(metrics != null)
+            metrics.query(System.nanoTime() - start, found);
+    }
+
+    /**
+     *  Returns a compare rate for every element of the {@code Iterable} (if the rate
+     *  is equal or greater to {@code minRate}) to a {@code Consumer}.
+     *  Elements are compared one at a time while they are iterated, and nothing is kept after they are compared
+     *
+     * @param compareInfoList
+     *  The method will pass here the {@code CompareInfo} objects, in the order of the {@code Iterable}
+     * @param strings
+     *  The set of {@code String} objects
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be considered similar
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     */
+    public static void compareInfo(Consumer<? super CompareInfo> compareInfoList, Iterable<String> strings, String string,
+            int minRate, boolean scrollCompare) {
+        if(strings == null) {
+            return;
+        }
+
+        compareInfo(compareInfoList, strings.iterator(), string, minRate, scrollCompare);
+    }
+
+    /**
+     *  Returns a lazy {@code Stream} of the compare rate of every element of the {@code Stream} (if the rate
+     *  is equal or greater to {@code minRate}).
+     *  Elements are compared only when the returned {@code Stream} is consumed, and it can be parallel.
+     *  The query has no end that {@link CompareMetrics} could record, only its comparisons are counted
+     *
+     * @param strings
+     *  The set of {@code String} objects
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be considered similar
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  A {@code Stream} of the {@code CompareInfo} objects
+     */
+    public static Stream<CompareInfo> compareInfo(Stream<String> strings, String string, int minRate, boolean scrollCompare) {
+        if(string == null || string.length() == 0) {
+            return Stream.<CompareInfo>empty().onClose(strings::close);
+        }
+
+        char[] query = prepareToCompare(string).toCharArray();
+        return strings.map(current -> new CompareInfo(current, rate(current, query, scrollCompare)))
+                .filter(info -> minRate == -1 || info.rate >= minRate);
     }
     
     /**
@@ -304,7 +642,9 @@ public class Compare {
      *  A list containing the rates for every {@code String} object in the {@code String} Set
      */
     public static List<CompareInfo> compareInfo(Collection<String> strings, String string, int minRate, boolean scrollCompare) {
-        return compareInfo(strings.toArray(new String[strings.size()]), string, minRate, scrollCompare);
+        List<CompareInfo> infos = new ArrayList<>();
+        compareInfo(infos, strings, string, minRate, scrollCompare);
+        return infos;
     }
     
     /**
@@ -341,6 +681,68 @@ public class Compare {
         return compareInfo(strings, string, LOWER_RATE, scrollCompare);
     }
     
+    /**
+     *  Returns the {@code k} {@code String} objects in the {@code String} Array with the greatest
+     *  compare rate (if the rate is equal or greater to {@code minRate}), sorted from the most similar.
+     *  Elements with the same rate keep the order of the Array.
+     *  Only the {@code k} best rates are kept while comparing, so only {@code k} {@code CompareInfo} objects are built
+     *
+     * @param strings
+     *  The set of {@code String} objects
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param k
+     *  The greatest number of {@code CompareInfo} objects to return
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be considered similar
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  A sorted list containing at most {@code k} {@code CompareInfo} objects
+     */
+    public static List<CompareInfo> topK(String[] strings, String string, int k, int minRate, boolean scrollCompare) {
+        if(strings == null || string == null || strings.length == 0 || string.length() == 0 || k <= 0) {
+            return new ArrayList<>();
+        }
+
+        CompareMetrics metrics = metrics();
+        long start = metrics != null ? System.nanoTime() : 0L;
+        RateHeap heap = new RateHeap(Math.min(k, strings.length));
+        for (int count = 0; count < strings.length; count++) {
+            String current = strings[count];
+            int result = scrollCompare ? scrollComparison(current, string) : linearComparison(current, string);
+
+            if (result >= minRate)
+                heap.offer(result, count);
+        }
+
+        if(metrics != null)
+            metrics.query(System.nanoTime() - start, heap.size());
+        return heap.toCompareInfo(strings);
+    }
+
+    /**
+     *  Returns the {@code k} {@code String} objects in the {@code String} Collection with the greatest
+     *  compare rate (if the rate is equal or greater to {@code minRate}), sorted from the most similar.
+     *  Elements with the same rate keep the order of the Collection
+     *
+     * @param strings
+     *  The set of {@code String} objects
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param k
+     *  The greatest number of {@code CompareInfo} objects to return
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be considered similar
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  A sorted list containing at most {@code k} {@code CompareInfo} objects
+     */
+    public static List<CompareInfo> topK(Collection<String> strings, String string, int k, int minRate, boolean scrollCompare) {
+        return topK(strings.toArray(new String[strings.size()]), string, k, minRate, scrollCompare);
+    }
+    
     /**
      *  Prepares and compares to {@code String} object in linear mode
      *
@@ -355,17 +757,11 @@ public class Compare {
         if(string1 == null || string2 == null || string1.length() == 0 || string2.length() == 0)
             return 0;
         
-        string1 = prepareToCompare(string1);
-        string2 = prepareToCompare(string2);
-        
-        String max = max(string1, string2);
-        String min = min(string1, string2);
-
-        float equalness = linearCompare(max, min);
-        if (equalness == min.length() * COMPARE_BASE_VALUE)
-            return GREATER_RATE;
+        Preparer[] preparers = PREPARERS.get();
+        Preparer prepared1 = prepare(preparers[0], string1);
+        Preparer prepared2 = prepare(preparers[1], string2);
         
-        return (int) equalness;
+        return linearRate(prepared1.chars, 0, prepared1.length, prepared2.chars, 0, prepared2.length);
     }
     
     /**
@@ -382,98 +778,872 @@ public class Compare {
         if(string1 == null || string2 == null || string1.length() == 0 || string2.length() == 0)
             return 0;
         
-        string1 = removeAccents(string1);
-        string2 = removeAccents(string2);
-        
-        string1 = removeSpaces(string1);
-        string1 = string1.toLowerCase();
-        string2 = removeSpaces(string2);
-        string2 = string2.toLowerCase();
+        Preparer[] preparers = PREPARERS.get();
+        Preparer prepared1 = prepare(preparers[0], string1);
+        Preparer prepared2 = prepare(preparers[1], string2);
 
-        String max = max(string1, string2);
-        String min = min(string1, string2);
-
-        return (int) scrollCompare(max, min);
+        return scrollRate(prepared1.chars, 0, prepared1.length, prepared2.chars, 0, prepared2.length);
     }
-    
+
     /**
-     *  Compares to {@code String} object in linear mode
+     *  Compares two prepared sequences of chars in linear mode, choosing the longer
+     *  one as {@link #max(String, String)} and {@link #min(String, String)} would do
      *
-     * @param max
-     *  The longer {@code String} object to be compared
-     * @param min
-     *  The shorter {@code String} object to be compared
+     * @param chars1
+     *  The array containing the first sequence
+     * @param offset1
+     *  The index of the first char of the first sequence
+     * @param length1
+     *  The length of the first sequence
+     * @param chars2
+     *  The array containing the second sequence
+     * @param offset2
+     *  The index of the first char of the second sequence
+     * @param length2
+     *  The length of the second sequence
      * @return
-     *  The compare rate of two {@code String} objects
+     *  The same compare rate that {@link #linearComparison(String, String)} gives
+     *  to the two {@code String} objects the sequences were prepared from
      */
-    private static float linearCompare(String max, String min) {
-        
-        float n = 0;
-        boolean[] steps = {false, false, false};
+    static int linearRate(char[] chars1, int offset1, int length1, char[] chars2, int offset2, int length2) {
+        CompareMetrics metrics = metrics();
+        if(metrics == null)
+            return linearRateOf(chars1, offset1, length1, chars2, offset2, length2);
 
-        for (int count = 0; count < min.length(); count++) {
-            char c = min.charAt(count);
+        long start = System.nanoTime();
+        int rate = linearRateOf(chars1, offset1, length1, chars2, offset2, length2);
+        metrics.scored(System.nanoTime() - start, rate == GREATER_RATE);
+        return rate;
+    }
 
-            if (!steps[0] && count > 0 && c == max.charAt(count - 1)) {
-                n += COMPARE_BASE_VALUE;
-                steps[0] = true;
-            } else if (!steps[1] && c == max.charAt(count)) {
-                n += COMPARE_BASE_VALUE;
-                steps[1] = true;
-            } else if (!steps[2] && count + 1 < max.length() && c == max.charAt(count + 1)) {
-                n += COMPARE_BASE_VALUE;
-                steps[2] = true;
-            } else {
+    private static int linearRateOf(char[] chars1, int offset1, int length1, char[] chars2, int offset2, int length2) {
+        float equalness;
+        int minLength;
+        if(length1 > length2) {
+            equalness = linearCompare(chars1, offset1, length1, chars2, offset2, length2);
+            minLength = length2;
+        } else {
+            equalness = linearCompare(chars2, offset2, length2, chars1, offset1, length1);
+            minLength = length1;
+        }
+
+        if (equalness == minLength * COMPARE_BASE_VALUE)
+            return GREATER_RATE;
+
+        return (int) equalness;
+    }
+
+    /**
+     *  Compares a prepared sequence of Latin-1 chars, stored one per byte, to a prepared sequence of chars
+     *  in linear mode, as {@link #linearRate(char[], int, int, char[], int, int)} does
+     *
+     * @param latin1
+     *  The array containing the first sequence, every byte is the low byte of a char from 0 to 255
+     * @param offset1
+     *  The index of the first byte of the first sequence
+     * @param length1
+     *  The length of the first sequence
+     * @param chars2
+     *  The array containing the second sequence
+     * @param offset2
+     *  The index of the first char of the second sequence
+     * @param length2
+     *  The length of the second sequence
+     * @return
+     *  The same compare rate that {@link #linearRate(char[], int, int, char[], int, int)} gives
+     *  to the sequences with the bytes of the first one widened to chars
+     */
+    static int linearRate(byte[] latin1, int offset1, int length1, char[] chars2, int offset2, int length2) {
+        CompareMetrics metrics = metrics();
+        if(metrics == null)
+            return linearRateOf(latin1, offset1, length1, chars2, offset2, length2);
+
+        long start = System.nanoTime();
+        int rate = linearRateOf(latin1, offset1, length1, chars2, offset2, length2);
+        metrics.scored(System.nanoTime() - start, rate == GREATER_RATE);
+        return rate;
+    }
+
+    private static int linearRateOf(byte[] latin1, int offset1, int length1, char[] chars2, int offset2, int length2) {
+        float equalness;
+        int minLength;
+        if(length1 > length2) {
+            equalness = linearSteps(latin1, offset1, length1, chars2, offset2, length2) -
+                    ((float) (length1 - length2)) * LENGTH_SCALE;
+            minLength = length2;
+        } else {
+            equalness = linearSteps(chars2, offset2, length2, latin1, offset1, length1);
+            if(length2 > length1)
+                equalness -= ((float) (length2 - length1)) * LENGTH_SCALE;
+            minLength = length1;
+        }
+
+        if (equalness == minLength * COMPARE_BASE_VALUE)
+            return GREATER_RATE;
+
+        return (int) equalness;
+    }
+
+    /**
+     *  Copies a prepared sequence of Latin-1 chars, stored one per byte, to an array of chars
+     *
+     * @param latin1
+     *  The array containing the sequence
+     * @param offset
+     *  The index of the first byte of the sequence
+     * @param length
+     *  The length of the sequence
+     * @param chars
+     *  The destination array
+     * @param charsOffset
+     *  The index in the destination of the first char of the sequence
+     */
+    static void widen(byte[] latin1, int offset, int length, char[] chars, int charsOffset) {
+        for (int count = 0; count < length; count++) {
+            chars[charsOffset + count] = (char) (latin1[offset + count] & 0xFF);
+        }
+    }
+
+    /**
+     *  Get the array of the thread used to widen a prepared element before comparing it. It is shared by
+     *  every set, so it must not be kept after the comparison
+     *
+     * @param length
+     *  The length of the element
+     * @return
+     *  An array at least {@code length} long, its content is undefined
+     */
+    static char[] scratch(int length) {
+        char[] chars = SCRATCH.get();
+        if(chars.length < length) {
+            chars = new char[Math.max(length, chars.length * 2)];
+            SCRATCH.set(chars);
+        }
+        return chars;
+    }
+
+    /**
+     *  Get the array of the thread used to read a prepared Latin-1 element before comparing it, as {@link #scratch(int)}
+     *
+     * @param length
+     *  The length of the element
+     * @return
+     *  An array at least {@code length} long, its content is undefined
+     */
+    static byte[] byteScratch(int length) {
+        byte[] bytes = BYTE_SCRATCH.get();
+        if(bytes.length < length) {
+            bytes = new byte[Math.max(length, bytes.length * 2)];
+            BYTE_SCRATCH.set(bytes);
+        }
+        return bytes;
+    }
+
+    /**
+     *  Compares two prepared sequences of chars in scrolling mode, choosing the longer
+     *  one as {@link #max(String, String)} and {@link #min(String, String)} would do
+     *
+     * @param chars1
+     *  The array containing the first sequence
+     * @param offset1
+     *  The index of the first char of the first sequence
+     * @param length1
+     *  The length of the first sequence
+     * @param chars2
+     *  The array containing the second sequence
+     * @param offset2
+     *  The index of the first char of the second sequence
+     * @param length2
+     *  The length of the second sequence
+     * @return
+     *  The same compare rate that {@link #scrollComparison(String, String)} gives
+     *  to the two {@code String} objects the sequences were prepared from
+     */
+    static int scrollRate(char[] chars1, int offset1, int length1, char[] chars2, int offset2, int length2) {
+        CompareMetrics metrics = metrics();
+        if(metrics == null)
+            return scrollRateOf(chars1, offset1, length1, chars2, offset2, length2);
+
+        long start = System.nanoTime();
+        int rate = scrollRateOf(chars1, offset1, length1, chars2, offset2, length2);
+        metrics.scored(System.nanoTime() - start, false);
+        return rate;
+    }
+
+    private static int scrollRateOf(char[] chars1, int offset1, int length1, char[] chars2, int offset2, int length2) {
+        if(length1 > length2)
+            return (int) scrollCompare(chars1, offset1, length1, chars2, offset2, length2);
+        return (int) scrollCompare(chars2, offset2, length2, chars1, offset1, length1);
+    }
+
+    /**
+     *  Compares two prepared sequences of chars in linear mode with the weights of a {@link CompareProfile},
+     *  as {@link #linearRate(char[], int, int, char[], int, int)} does with the weights of {@link CompareProfile#DEFAULT}
+     *
+     * @param profile
+     *  The weights to use
+     * @param chars1
+     *  The array containing the first sequence
+     * @param offset1
+     *  The index of the first char of the first sequence
+     * @param length1
+     *  The length of the first sequence
+     * @param chars2
+     *  The array containing the second sequence
+     * @param offset2
+     *  The index of the first char of the second sequence
+     * @param length2
+     *  The length of the second sequence
+     * @return
+     *  The compare rate of the two sequences
+     */
+    static int linearRate(CompareProfile profile, char[] chars1, int offset1, int length1, char[] chars2, int offset2,
+            int length2) {
+        CompareMetrics metrics = metrics();
+        if(metrics == null)
+            return linearRateOf(profile, chars1, offset1, length1, chars2, offset2, length2);
+
+        long start = System.nanoTime();
+        int rate = linearRateOf(profile, chars1, offset1, length1, chars2, offset2, length2);
+        metrics.scored(System.nanoTime() - start, rate == profile.greaterRate());
+        return rate;
+    }
+
+    private static int linearRateOf(CompareProfile profile, char[] chars1, int offset1, int length1, char[] chars2,
+            int offset2, int length2) {
+        float base = profile.baseValue(), subtract = profile.subtractValue();
+        float equalness;
+        int minLength;
+        if(length1 > length2) {
+            equalness = linearSteps(chars1, offset1, length1, chars2, offset2, length2, base, subtract);
+            equalness -= ((float) (length1 - length2)) * profile.lengthScale();
+            minLength = length2;
+        } else {
+            equalness = linearSteps(chars2, offset2, length2, chars1, offset1, length1, base, subtract);
+            if(length2 > length1)
+                equalness -= ((float) (length2 - length1)) * profile.lengthScale();
+            minLength = length1;
+        }
+
+        if (equalness == minLength * base)
+            return profile.greaterRate();
+
+        return (int) equalness;
+    }
+
+    /**
+     *  Compares two prepared sequences of chars in scrolling mode with the weights of a {@link CompareProfile},
+     *  as {@link #scrollRate(char[], int, int, char[], int, int)} does with the weights of {@link CompareProfile#DEFAULT}
+     *
+     * @param profile
+     *  The weights to use
+     * @param chars1
+     *  The array containing the first sequence
+     * @param offset1
+     *  The index of the first char of the first sequence
+     * @param length1
+     *  The length of the first sequence
+     * @param chars2
+     *  The array containing the second sequence
+     * @param offset2
+     *  The index of the first char of the second sequence
+     * @param length2
+     *  The length of the second sequence
+     * @return
+     *  The compare rate of the two sequences
+     */
+    static int scrollRate(CompareProfile profile, char[] chars1, int offset1, int length1, char[] chars2, int offset2,
+            int length2) {
+        CompareMetrics metrics = metrics();
+        if(metrics == null)
+            return scrollRateOf(profile, chars1, offset1, length1, chars2, offset2, length2);
+
+        long start = System.nanoTime();
+        int rate = scrollRateOf(profile, chars1, offset1, length1, chars2, offset2, length2);
+        metrics.scored(System.nanoTime() - start, false);
+        return rate;
+    }
+
+    private static int scrollRateOf(CompareProfile profile, char[] chars1, int offset1, int length1, char[] chars2,
+            int offset2, int length2) {
+        if(length1 > length2)
+            return (int) scalarScrollCompare(chars1, offset1, length1, chars2, offset2, length2, profile.baseValue(),
+                    profile.subtractValue(), profile.scrollScale(), profile.lowerRate());
+        return (int) scalarScrollCompare(chars2, offset2, length2, chars1, offset1, length1, profile.baseValue(),
+                profile.subtractValue(), profile.scrollScale(), profile.lowerRate());
+    }
+
+    /**
+     *  Builds a mask of the chars in a prepared sequence: the bit {@code c % 64} is set
+     *  for every char {@code c}. Different chars may share a bit, but a bit set in a mask
+     *  and not in another one means a char that is surely not in the second sequence
+     *
+     * @param chars
+     *  The array containing the sequence
+     * @param offset
+     *  The index of the first char of the sequence
+     * @param length
+     *  The length of the sequence
+     * @return
+     *  The mask of the chars in the sequence
+     */
+    static long charMask(char[] chars, int offset, int length) {
+        long mask = 0L;
+        for (int count = offset; count < offset + length; count++) {
+            mask |= 1L << chars[count];
+        }
+        return mask;
+    }
+
+    /**
+     *  Builds the mask of a prepared sequence of Latin-1 chars stored one per byte,
+     *  see {@link #charMask(char[], int, int)}
+     *
+     * @param latin1
+     *  The array containing the sequence
+     * @param offset
+     *  The index of the first byte of the sequence
+     * @param length
+     *  The length of the sequence
+     * @return
+     *  The mask of the chars in the sequence
+     */
+    static long charMask(byte[] latin1, int offset, int length) {
+        long mask = 0L;
+        for (int count = offset; count < offset + length; count++) {
+            mask |= 1L << (latin1[count] & 0xFF);
+        }
+        return mask;
+    }
+
+    /**
+     *  Gives a rate that is equal or greater than the compare rate of two prepared sequences,
+     *  without looking at their chars. The chars of the shorter sequence that are not
+     *  in the longer one can't earn points.
+     *  A mask of {@code -1L} can be used when the chars of a sequence are not known
+     *
+     * @param length1
+     *  The length of the first sequence
+     * @param mask1
+     *  The mask of the chars in the first sequence
+     * @param length2
+     *  The length of the second sequence
+     * @param mask2
+     *  The mask of the chars in the second sequence
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  An upper bound of {@link #linearRate(char[], int, int, char[], int, int)} or
+     *  {@link #scrollRate(char[], int, int, char[], int, int)}. It is equal or greater than
+     *  {@link #GREATER_RATE} when the sequences could get it
+     * @see #charMask(char[], int, int)
+     */
+    static int rateBound(int length1, long mask1, int length2, long mask2, boolean scrollCompare) {
+        int maxLength, minLength, missing;
+        if(length1 > length2) {
+            maxLength = length1;
+            minLength = length2;
+            missing = Long.bitCount(mask2 & ~mask1);
+        } else {
+            maxLength = length2;
+            minLength = length1;
+            missing = Long.bitCount(mask1 & ~mask2);
+        }
+
+        float n = (minLength - missing) * COMPARE_BASE_VALUE - missing * COMPARE_SUBTRACT_VALUE;
+        if(scrollCompare)
+            return (int) Math.max(n, LOWER_RATE);
+
+        if(maxLength > minLength)
+            n -= ((float) (maxLength - minLength)) * LENGTH_SCALE;
+
+        if (n >= minLength * COMPARE_BASE_VALUE)
+            return Math.max((int) n, GREATER_RATE);
+
+        return (int) n;
+    }
+
+    /**
+     *  Compares two prepared sequences of chars in linear mode.
+     *  The state of the previous steps is kept in local variables, nothing is allocated
+     *
+     * @param max
+     *  The array containing the longer sequence
+     * @param maxOffset
+     *  The index of the first char of the longer sequence
+     * @param maxLength
+     *  The length of the longer sequence
+     * @param min
+     *  The array containing the shorter sequence
+     * @param minOffset
+     *  The index of the first char of the shorter sequence
+     * @param minLength
+     *  The length of the shorter sequence
+     * @return
+     *  The compare rate of the two sequences
+     */
+    static float linearCompare(char[] max, int maxOffset, int maxLength, char[] min, int minOffset, int minLength) {
+        float n = linearSteps(max, maxOffset, maxLength, min, minOffset, minLength);
+
+        if(maxLength > minLength)
+            n -= ((float) (maxLength - minLength)) * LENGTH_SCALE;
+
+        return n;
+    }
+
+    /**
+     *  Compares two prepared sequences of chars in linear mode, without the penalty
+     *  for their different length
+     *
+     * @param max
+     *  The array containing the longer sequence
+     * @param maxOffset
+     *  The index of the first char of the longer sequence
+     * @param maxLength
+     *  The length of the longer sequence
+     * @param min
+     *  The array containing the shorter sequence
+     * @param minOffset
+     *  The index of the first char of the shorter sequence
+     * @param minLength
+     *  The length of the shorter sequence
+     * @return
+     *  The points earned by the chars of the shorter sequence
+     */
+    static float linearSteps(char[] max, int maxOffset, int maxLength, char[] min, int minOffset, int minLength) {
+        return linearSteps(max, maxOffset, maxLength, min, minOffset, minLength, COMPARE_BASE_VALUE, COMPARE_SUBTRACT_VALUE);
+    }
+
+    /**
+     *  Performs {@link #linearSteps(char[], int, int, char[], int, int)} with the weights of a {@link CompareProfile}
+     *
+     * @param max
+     *  The array containing the longer sequence
+     * @param maxOffset
+     *  The index of the first char of the longer sequence
+     * @param maxLength
+     *  The length of the longer sequence
+     * @param min
+     *  The array containing the shorter sequence
+     * @param minOffset
+     *  The index of the first char of the shorter sequence
+     * @param minLength
+     *  The length of the shorter sequence
+     * @param base
+     *  The points earned by a matched char
+     * @param subtract
+     *  The points lost by a char that does not match
+     * @return
+     *  The points earned by the chars of the shorter sequence
+     */
+    static float linearSteps(char[] max, int maxOffset, int maxLength, char[] min, int minOffset, int minLength,
+            float base, float subtract) {
+
+        float n = 0;
+        boolean previous = false, current = false;
+
+        for (int count = 0; count < minLength; count++) {
+            char c = min[minOffset + count];
+            boolean next = false;
+
+            if (!previous && count > 0 && c == max[maxOffset + count - 1]) {
+                n += base;
+            } else if (!current && c == max[maxOffset + count]) {
+                n += base;
+                current = true;
+            } else if (count + 1 < maxLength && c == max[maxOffset + count + 1]) {
+                n += base;
+                next = true;
+            } else {
+                n -= subtract;
+            }
+
+            previous = current;
+            current = next;
+        }
+
+        return n;
+    }
+
+    /**
+     *  Performs {@link #linearSteps(char[], int, int, char[], int, int)} when the longer sequence
+     *  is made of Latin-1 chars stored one per byte
+     *
+     * @param max
+     *  The array containing the longer sequence
+     * @param maxOffset
+     *  The index of the first byte of the longer sequence
+     * @param maxLength
+     *  The length of the longer sequence
+     * @param min
+     *  The array containing the shorter sequence
+     * @param minOffset
+     *  The index of the first char of the shorter sequence
+     * @param minLength
+     *  The length of the shorter sequence
+     * @return
+     *  The points earned by the chars of the shorter sequence
+     */
+    static float linearSteps(byte[] max, int maxOffset, int maxLength, char[] min, int minOffset, int minLength) {
+
+        float n = 0;
+        boolean previous = false, current = false;
+
+        for (int count = 0; count < minLength; count++) {
+            char c = min[minOffset + count];
+            boolean next = false;
+
+            if (!previous && count > 0 && c == (max[maxOffset + count - 1] & 0xFF)) {
+                n += COMPARE_BASE_VALUE;
+            } else if (!current && c == (max[maxOffset + count] & 0xFF)) {
+                n += COMPARE_BASE_VALUE;
+                current = true;
+            } else if (count + 1 < maxLength && c == (max[maxOffset + count + 1] & 0xFF)) {
+                n += COMPARE_BASE_VALUE;
+                next = true;
+            } else {
                 n -= COMPARE_SUBTRACT_VALUE;
             }
-            
-            steps[0] = steps[1];
-            steps[1] = steps[2];
-            steps[2] = false;
+
+            previous = current;
+            current = next;
         }
-        
-        if(max.length() > min.length())
-            n -= ((float) (max.length() - min.length())) * LENGTH_SCALE;
 
         return n;
     }
-    
+
     /**
-     *  Compares to {@code String} object in scrolling mode
+     *  Performs {@link #linearSteps(char[], int, int, char[], int, int)} when the shorter sequence
+     *  is made of Latin-1 chars stored one per byte
      *
      * @param max
-     *  The longer {@code String} object to be compared
+     *  The array containing the longer sequence
+     * @param maxOffset
+     *  The index of the first char of the longer sequence
+     * @param maxLength
+     *  The length of the longer sequence
      * @param min
-     *  The shorter {@code String} object to be compared
+     *  The array containing the shorter sequence
+     * @param minOffset
+     *  The index of the first byte of the shorter sequence
+     * @param minLength
+     *  The length of the shorter sequence
      * @return
-     *  The compare rate of two {@code String} objects
+     *  The points earned by the chars of the shorter sequence
      */
-    private static float scrollCompare(String max, String min) {
-        if(max.length() < min.length())
+    static float linearSteps(char[] max, int maxOffset, int maxLength, byte[] min, int minOffset, int minLength) {
+
+        float n = 0;
+        boolean previous = false, current = false;
+
+        for (int count = 0; count < minLength; count++) {
+            char c = (char) (min[minOffset + count] & 0xFF);
+            boolean next = false;
+
+            if (!previous && count > 0 && c == max[maxOffset + count - 1]) {
+                n += COMPARE_BASE_VALUE;
+            } else if (!current && c == max[maxOffset + count]) {
+                n += COMPARE_BASE_VALUE;
+                current = true;
+            } else if (count + 1 < maxLength && c == max[maxOffset + count + 1]) {
+                n += COMPARE_BASE_VALUE;
+                next = true;
+            } else {
+                n -= COMPARE_SUBTRACT_VALUE;
+            }
+
+            previous = current;
+            current = next;
+        }
+
+        return n;
+    }
+
+    /**
+     *  Gives the compare rate of two sequences from the points earned by the chars of the shorter one,
+     *  as {@link #linearRate(char[], int, int, char[], int, int)} does
+     *
+     * @param steps
+     *  The points earned by the chars of the shorter sequence, see {@link #linearSteps(char[], int, int, char[], int, int)}
+     * @param maxLength
+     *  The length of the longer sequence
+     * @param minLength
+     *  The length of the shorter sequence
+     * @return
+     *  The compare rate of the two sequences
+     */
+    static int linearRate(float steps, int maxLength, int minLength) {
+        if(maxLength > minLength)
+            steps -= ((float) (maxLength - minLength)) * LENGTH_SCALE;
+
+        if (steps == minLength * COMPARE_BASE_VALUE)
+            return GREATER_RATE;
+
+        return (int) steps;
+    }
+
+    /**
+     *  Performs a single step of {@link #linearSteps(char[], int, int, char[], int, int)}, comparing a char
+     *  of the shorter sequence to the chars of the longer one before, at and after its position.
+     *  The state holds {@link #STEP_PREVIOUS} and {@link #STEP_CURRENT} when the char before and at the
+     *  position were already matched, and {@link #STEP_MATCHED} when the char earned points
+     *
+     * @param state
+     *  The state returned by the previous step, 0 for the first one
+     * @param c
+     *  The char of the shorter sequence
+     * @param max
+     *  The array containing the longer sequence
+     * @param position
+     *  The index of the char of the longer sequence at the position of {@code c}
+     * @param first
+     *  True if {@code c} is the first char of the shorter sequence
+     * @param hasNext
+     *  True if the longer sequence has a char after the position of {@code c}
+     * @return
+     *  The new state
+     * @see #stepPoints(int)
+     */
+    static int step(int state, char c, char[] max, int position, boolean first, boolean hasNext) {
+        int previous = (state & STEP_CURRENT) != 0 ? STEP_PREVIOUS : 0;
+
+        if ((state & STEP_PREVIOUS) == 0 && !first && c == max[position - 1]) {
+            return STEP_MATCHED | previous;
+        } else if ((state & STEP_CURRENT) == 0 && c == max[position]) {
+            return STEP_MATCHED | STEP_PREVIOUS;
+        } else if (hasNext && c == max[position + 1]) {
+            return STEP_MATCHED | previous | STEP_CURRENT;
+        }
+        return previous;
+    }
+
+    /**
+     *  Performs {@link #step(int, char, char[], int, boolean, boolean)} when the longer sequence
+     *  is made of Latin-1 chars stored one per byte
+     *
+     * @param state
+     *  The state returned by the previous step, 0 for the first one
+     * @param c
+     *  The char of the shorter sequence
+     * @param max
+     *  The array containing the longer sequence
+     * @param position
+     *  The index of the byte of the longer sequence at the position of {@code c}
+     * @param first
+     *  True if {@code c} is the first char of the shorter sequence
+     * @param hasNext
+     *  True if the longer sequence has a char after the position of {@code c}
+     * @return
+     *  The new state
+     */
+    static int step(int state, char c, byte[] max, int position, boolean first, boolean hasNext) {
+        int previous = (state & STEP_CURRENT) != 0 ? STEP_PREVIOUS : 0;
+
+        if ((state & STEP_PREVIOUS) == 0 && !first && c == (max[position - 1] & 0xFF)) {
+            return STEP_MATCHED | previous;
+        } else if ((state & STEP_CURRENT) == 0 && c == (max[position] & 0xFF)) {
+            return STEP_MATCHED | STEP_PREVIOUS;
+        } else if (hasNext && c == (max[position + 1] & 0xFF)) {
+            return STEP_MATCHED | previous | STEP_CURRENT;
+        }
+        return previous;
+    }
+
+    /**
+     *  Get the points earned by a step
+     *
+     * @param state
+     *  The state returned by {@link #step(int, char, char[], int, boolean, boolean)}
+     * @return
+     *  The points to add
+     */
+    static float stepPoints(int state) {
+        return (state & STEP_MATCHED) != 0 ? COMPARE_BASE_VALUE : -COMPARE_SUBTRACT_VALUE;
+    }
+
+    /**
+     *  Get the penalty of a window in scrolling mode
+     *
+     * @param indexOnMax
+     *  The index of the window on the longer sequence
+     * @return
+     *  The points to subtract
+     */
+    static float scrollPenalty(int indexOnMax) {
+        return indexOnMax * SCROLL_COMPARE_SCALE;
+    }
+
+    /**
+     *  Compares two prepared sequences of chars in scrolling mode. When there are enough windows
+     *  they are compared together by {@link BitParallelScroll}, else by {@link #scalarScrollCompare(char[], int, int, char[], int, int)}
+     *
+     * @param max
+     *  The array containing the longer sequence
+     * @param maxOffset
+     *  The index of the first char of the longer sequence
+     * @param maxLength
+     *  The length of the longer sequence
+     * @param min
+     *  The array containing the shorter sequence
+     * @param minOffset
+     *  The index of the first char of the shorter sequence
+     * @param minLength
+     *  The length of the shorter sequence
+     * @return
+     *  The compare rate of the two sequences
+     */
+    static float scrollCompare(char[] max, int maxOffset, int maxLength, char[] min, int minOffset, int minLength) {
+        if(maxLength < minLength)
             return 0f;
 
-        max = removeAccents(max);
-        min = removeAccents(min);
-        
-        max = removeSpaces(max);
-        max = max.toLowerCase();
-        min = removeSpaces(min);
-        min = min.toLowerCase();
-        
-        float n = LOWER_RATE;
-        for(int indexOnMax = 0; indexOnMax < (max.length() - min.length()) + 1; indexOnMax++) {
-            
-            float x = linearCompare(max.substring(indexOnMax, min.length() + indexOnMax), min);
-            x -= indexOnMax * SCROLL_COMPARE_SCALE;
-            
+        if(BitParallelScroll.accepts(maxLength, minLength))
+            return BitParallelScroll.scrollCompare(max, maxOffset, maxLength, min, minOffset, minLength);
+        return scalarScrollCompare(max, maxOffset, maxLength, min, minOffset, minLength);
+    }
+
+    /**
+     *  Compares two prepared sequences of chars in scrolling mode, one window at a time. Every window of {@code max}
+     *  is compared in place, without copying it
+     *
+     * @param max
+     *  The array containing the longer sequence
+     * @param maxOffset
+     *  The index of the first char of the longer sequence
+     * @param maxLength
+     *  The length of the longer sequence, equal or greater than {@code minLength}
+     * @param min
+     *  The array containing the shorter sequence
+     * @param minOffset
+     *  The index of the first char of the shorter sequence
+     * @param minLength
+     *  The length of the shorter sequence
+     * @return
+     *  The compare rate of the two sequences
+     */
+    static float scalarScrollCompare(char[] max, int maxOffset, int maxLength, char[] min, int minOffset, int minLength) {
+        return scalarScrollCompare(max, maxOffset, maxLength, min, minOffset, minLength, COMPARE_BASE_VALUE,
+                COMPARE_SUBTRACT_VALUE, SCROLL_COMPARE_SCALE, LOWER_RATE);
+    }
+
+    /**
+     *  Performs {@link #scalarScrollCompare(char[], int, int, char[], int, int)} with the weights of a {@link CompareProfile}
+     *
+     * @param max
+     *  The array containing the longer sequence
+     * @param maxOffset
+     *  The index of the first char of the longer sequence
+     * @param maxLength
+     *  The length of the longer sequence, equal or greater than {@code minLength}
+     * @param min
+     *  The array containing the shorter sequence
+     * @param minOffset
+     *  The index of the first char of the shorter sequence
+     * @param minLength
+     *  The length of the shorter sequence
+     * @param base
+     *  The points earned by a matched char
+     * @param subtract
+     *  The points lost by a char that does not match
+     * @param scale
+     *  The points lost for every char a window is moved by
+     * @param lowerRate
+     *  The rate that the best window has to beat
+     * @return
+     *  The rate of the best window
+     */
+    static float scalarScrollCompare(char[] max, int maxOffset, int maxLength, char[] min, int minOffset, int minLength,
+            float base, float subtract, float scale, int lowerRate) {
+
+        // a step earns at most top points, so a window earns at most best
+        float top = Math.max(base, -subtract);
+        float best = minLength * top;
+        float n = lowerRate;
+        int indexOnMax = 0;
+        for(; indexOnMax < (maxLength - minLength) + 1; indexOnMax++) {
+            float penalty = indexOnMax * scale;
+
+            // when the penalty grows with the window, the next windows can't beat n even if every char matches
+            if(scale >= 0 && best - penalty <= n)
+                break;
+
+            float x = windowSteps(max, maxOffset + indexOnMax, min, minOffset, minLength, penalty, n, base, subtract, top);
+            x -= penalty;
+
             if(x > n)
                 n = x;
         }
+
+        CompareMetrics metrics = metrics();
+        if(metrics != null)
+            metrics.windows(indexOnMax);
         return n;
     }
 
     /**
-     *  Utility method to get the first {@code String} in an alphabetical order
+     *  Performs the steps of {@link #linearSteps(char[], int, int, char[], int, int, float, float)} on a window as long
+     *  as the shorter sequence, and stops as soon as the window can't get a rate greater than {@code n}
+     *
+     * @param max
+     *  The array containing the longer sequence
+     * @param windowOffset
+     *  The index of the first char of the window
+     * @param min
+     *  The array containing the shorter sequence
+     * @param minOffset
+     *  The index of the first char of the shorter sequence
+     * @param minLength
+     *  The length of the shorter sequence and of the window
+     * @param penalty
+     *  The penalty of the window
+     * @param n
+     *  The greatest rate of the previous windows
+     * @param base
+     *  The points earned by a matched char
+     * @param subtract
+     *  The points lost by a char that does not match
+     * @param top
+     *  The greatest points earned by a step, the greater of {@code base} and {@code -subtract}
+     * @return
+     *  The points earned by the chars of the shorter sequence, or a value that is not greater
+     *  than {@code n} once the penalty is subtracted if the window was abandoned
+     */
+    private static float windowSteps(char[] max, int windowOffset, char[] min, int minOffset, int minLength,
+            float penalty, float n, float base, float subtract, float top) {
+
+        float x = 0;
+        boolean previous = false, current = false;
+
+        for (int count = 0; count < minLength; count++) {
+            // every step adds at most top, and the float operations are monotonic
+            if(x + (minLength - count) * top - penalty <= n)
+                return x + (minLength - count) * top;
+
+            char c = min[minOffset + count];
+            boolean next = false;
+
+            if (!previous && count > 0 && c == max[windowOffset + count - 1]) {
+                x += base;
+            } else if (!current && c == max[windowOffset + count]) {
+                x += base;
+                current = true;
+            } else if (count + 1 < minLength && c == max[windowOffset + count + 1]) {
+                x += base;
+                next = true;
+            } else {
+                x -= subtract;
+            }
+
+            previous = current;
+            current = next;
+        }
+
+        return x;
+    }
+
+    /**
+     *  Utility method to get the first {@code String} in an alphabetical order.
+     *  The lower case forms without spaces are compared in place, nothing is allocated
+     *  unless a char needs the special rules of {@link String#toLowerCase()}
      *
      * @param s1
      * @param s2
@@ -481,25 +1651,135 @@ public class Compare {
      *  -1 if s1 comes before s2, 1 if s2 comes before s1 and 0 if they're equal
      */
     public static int alphabeticCompare(String s1, String s2) {
-        String cmd1 = removeSpaces(s1);
-        cmd1 = cmd1.toLowerCase();
-        String cmd2 = removeSpaces(s2);
-        cmd2 = cmd2.toLowerCase();
+        if(!Preparer.hasSpecialCasing()) {
+            int result = foldedCompare(s1, s2);
+            if(result != UNFOLDED)
+                return result;
+        }
+
+        int result = alphabeticKey(s1).compareTo(alphabeticKey(s2));
+        return result < 0 ? -1 : result > 0 ? 1 : 0;
+    }
+
+    /**
+     *  Get a {@code Comparator} of the alphabetical order of {@link #alphabeticCompare(String, String)}
+     *
+     * @return
+     *  A {@code Comparator} that compares two {@code String} objects in alphabetical order
+     */
+    public static Comparator<String> alphabeticComparator() {
+        return Compare::alphabeticCompare;
+    }
+
+    /**
+     *  Sorts a {@code String} Array in the order of {@link #alphabeticCompare(String, String)}.
+     *  The lower case form without spaces of every element is computed once, and the elements are
+     *  sorted by it. The sort is stable, so the order is the same of
+     *  {@code Arrays.sort(strings, Compare.alphabeticComparator())}
+     *
+     * @param strings
+     *  The set of {@code String} objects, it is sorted in place
+     */
+    public static void sortAlphabetically(String[] strings) {
+        boolean fold = !Preparer.hasSpecialCasing();
+        AlphabeticKey[] keys = new AlphabeticKey[strings.length];
+        for (int count = 0; count < strings.length; count++) {
+            String key = fold ? foldedKey(strings[count]) : null;
+            keys[count] = new AlphabeticKey(strings[count], key != null ? key : alphabeticKey(strings[count]));
+        }
+
+        Arrays.sort(keys);
+        for (int count = 0; count < strings.length; count++) {
+            strings[count] = keys[count].string;
+        }
+    }
+
+    /**
+     *  Sorts a {@code String} List in the order of {@link #alphabeticCompare(String, String)},
+     *  as {@link #sortAlphabetically(String[])} does
+     *
+     * @param strings
+     *  The set of {@code String} objects, it is sorted in place
+     */
+    public static void sortAlphabetically(List<String> strings) {
+        String[] sorted = strings.toArray(new String[strings.size()]);
+        sortAlphabetically(sorted);
+
+        ListIterator<String> iterator = strings.listIterator();
+        for (String s : sorted) {
+            iterator.next();
+            iterator.set(s);
+        }
+    }
+
+    /**
+     *  Compares the lower case forms without spaces of two {@code String} objects, reading them in place
+     *
+     * @return
+     *  The result of {@link #alphabeticCompare(String, String)}, or {@link #UNFOLDED} if a char
+     *  that needs the special rules of {@link String#toLowerCase()} was found before the result was known
+     */
+    private static int foldedCompare(String s1, String s2) {
+        int count1 = 0, count2 = 0;
+        while (true) {
+            while (count1 < s1.length() && Preparer.isSpace(s1.charAt(count1))) {
+                count1++;
+            }
+            while (count2 < s2.length() && Preparer.isSpace(s2.charAt(count2))) {
+                count2++;
+            }
+
+            // every char left is at least a char of the lower case form
+            if(count1 == s1.length())
+                return count2 == s2.length() ? 0 : -1;
+            if(count2 == s2.length())
+                return 1;
 
-        for (int count = 0; count < cmd1.length() && count < cmd2.length(); count++) {
-            if (cmd1.charAt(count) < cmd2.charAt(count)) {
+            char c1 = s1.charAt(count1++), c2 = s2.charAt(count2++);
+            if(!Preparer.hasSimpleLowerCase(c1) || !Preparer.hasSimpleLowerCase(c2))
+                return UNFOLDED;
+
+            c1 = Character.toLowerCase(c1);
+            c2 = Character.toLowerCase(c2);
+            if (c1 < c2) {
                 return -1;
-            } else if (cmd1.charAt(count) > cmd2.charAt(count)) {
+            } else if (c1 > c2) {
                 return 1;
             }
         }
+    }
 
-        if (cmd1.length() > cmd2.length()) {
-            return 1;
-        } else if (cmd1.length() < cmd2.length()) {
-            return -1;
+    /**
+     *  Builds the lower case form without spaces of a {@code String} object in a single loop
+     *
+     * @return
+     *  The same {@code String} of {@link #alphabeticKey(String)}, or null if a char
+     *  needs the special rules of {@link String#toLowerCase()}
+     */
+    private static String foldedKey(String s) {
+        char[] folded = new char[s.length()];
+        int length = 0;
+        for (int count = 0; count < s.length(); count++) {
+            char c = s.charAt(count);
+            if(Preparer.isSpace(c))
+                continue;
+            if(!Preparer.hasSimpleLowerCase(c))
+                return null;
+
+            folded[length++] = Character.toLowerCase(c);
         }
-        return 0;
+        return new String(folded, 0, length);
+    }
+
+    /**
+     *  Get the form of a {@code String} object that is compared by {@link #alphabeticCompare(String, String)}
+     *
+     * @param s
+     * @return
+     *  A lower case {@code String} object without spaces
+     */
+    private static String alphabeticKey(String s) {
+        return removeSpaces(s).toLowerCase();
     }
 
     /**
@@ -510,7 +1790,7 @@ public class Compare {
      *  A {@code String} object that does not contain spaces
      */
     public static String removeSpaces(String string) {
-        return string.replaceAll(SPACE_REGEXP, EMPTYSTRING);
+        return Preparer.removeSpaces(string);
     }
     
     /**
@@ -522,9 +1802,7 @@ public class Compare {
      *  A {@code String} object that does not contain accented characters
      */
     public static String removeAccents(String s) {
-        Pattern pattern = Pattern.compile(ACCENTS_PATTERN);
-        String decomposed = Normalizer.normalize(s, Form.NFD);
-        return pattern.matcher(decomposed).replaceAll(EMPTYSTRING);
+        return Preparer.removeAccents(s);
     }
     
     /**
@@ -557,11 +1835,77 @@ public class Compare {
      *  A lower case {@code String} object without spaces and
      *  accent
      */
-    private static String prepareToCompare(String s) {
-        s = removeAccents(s);
-        s = removeSpaces(s);
-        s = s.toLowerCase();
-        return s;
+    static String prepareToCompare(String s) {
+        CompareMetrics metrics = metrics();
+        long start = metrics != null ? System.nanoTime() : 0L;
+
+        CompareCache cache = Compare.cache;
+        String prepared = cache != null ? cache.prepare(s) : Preparer.prepareToCompare(s);
+        if(metrics != null)
+            metrics.normalized(System.nanoTime() - start);
+        return prepared;
+    }
+
+    /**
+     *  Prepares and compares a {@code String} object to a prepared query
+     *
+     * @param current
+     *  The {@code String} object to be compared
+     * @param query
+     *  The prepared chars of a {@code String} object that is not empty
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  The same compare rate that {@link #linearComparison(String, String)} or {@link #scrollComparison(String, String)}
+     *  give to {@code current} and the {@code String} object the query was prepared from
+     */
+    static int rate(String current, char[] query, boolean scrollCompare) {
+        if(current == null || current.length() == 0)
+            return 0;
+
+        Preparer prepared = prepare(PREPARERS.get()[0], current);
+        return scrollCompare ? scrollRate(prepared.chars, 0, prepared.length, query, 0, query.length) :
+                linearRate(prepared.chars, 0, prepared.length, query, 0, query.length);
+    }
+
+    private static Preparer prepare(Preparer preparer, String s) {
+        CompareMetrics metrics = metrics();
+        long start = metrics != null ? System.nanoTime() : 0L;
+
+        CompareCache cache = Compare.cache;
+        Preparer prepared = cache != null ? preparer.set(cache.prepare(s)) : preparer.prepare(s);
+        if(metrics != null)
+            metrics.normalized(System.nanoTime() - start);
+        return prepared;
+    }
+
+    /**
+     *  An element of a set with its {@link #alphabeticKey(String)}. The first four chars of the key are
+     *  packed in a {@code long}, so most of the comparisons of a sort don't read the key
+     */
+    private static final class AlphabeticKey implements Comparable<AlphabeticKey> {
+
+        final String string;
+        final String key;
+        final long prefix;
+
+        AlphabeticKey(String string, String key) {
+            this.string = string;
+            this.key = key;
+
+            long prefix = 0L;
+            for (int count = 0; count < 4; count++) {
+                prefix = (prefix << 16) | (count < key.length() ? key.charAt(count) : 0);
+            }
+            this.prefix = prefix;
+        }
+
+        @Override
+        public int compareTo(AlphabeticKey o) {
+            // a missing char is 0, so a different prefix gives the same order of the keys
+            int result = Long.compareUnsigned(prefix, o.prefix);
+            return result != 0 ? result : key.compareTo(o.key);
+        }
     }
 
     /**
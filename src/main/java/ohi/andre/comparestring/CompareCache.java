@@ -0,0 +1,256 @@
+package ohi.andre.comparestring;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *  A thread safe cache of prepared {@code String} objects and of the results of recent queries.
+ *  Both are bounded: when they are full the least recently used entry is discarded.
+ *  <p>
+ *  Nothing is cached unless a cache is given to {@link Compare#setCache(CompareCache)}, which
+ *  caches the prepared forms used by the static methods, or to {@link CompareIndex#setCache(CompareCache)},
+ *  which caches the prepared queries and the results of the index. An instance can be shared
+ *  between indexes, results are kept apart for each index
+ */
+public final class CompareCache {
+
+    private final Lru<String, String> prepared;
+    private final Lru<Object, Object> results;
+
+    private final AtomicLong preparedHits = new AtomicLong();
+    private final AtomicLong preparedMisses = new AtomicLong();
+    private final AtomicLong resultHits = new AtomicLong();
+    private final AtomicLong resultMisses = new AtomicLong();
+
+    /**
+     *  Construct a new instance of {@code CompareCache}
+     *
+     * @param maxPrepared
+     *  The greatest number of prepared {@code String} objects to keep, 0 to keep none
+     * @param maxResults
+     *  The greatest number of query results to keep, 0 to keep none
+     */
+    public CompareCache(int maxPrepared, int maxResults) {
+        if(maxPrepared < 0 || maxResults < 0)
+            throw new IllegalArgumentException("The size of the cache can't be negative");
+
+        this.prepared = new Lru<>(maxPrepared);
+        this.results = new Lru<>(maxResults);
+    }
+
+    /**
+     *  Get the number of times a prepared {@code String} object was found in the cache
+     *
+     * @return
+     *  The number of hits
+     */
+    public long preparedHits() {
+        return preparedHits.get();
+    }
+
+    /**
+     *  Get the number of times a {@code String} object had to be prepared
+     *
+     * @return
+     *  The number of misses
+     */
+    public long preparedMisses() {
+        return preparedMisses.get();
+    }
+
+    /**
+     *  Get the number of times the result of a query was found in the cache
+     *
+     * @return
+     *  The number of hits
+     */
+    public long resultHits() {
+        return resultHits.get();
+    }
+
+    /**
+     *  Get the number of times a query had to be computed
+     *
+     * @return
+     *  The number of misses
+     */
+    public long resultMisses() {
+        return resultMisses.get();
+    }
+
+    /**
+     *  Get the number of prepared {@code String} objects in the cache
+     *
+     * @return
+     *  The number of prepared {@code String} objects
+     */
+    public int preparedSize() {
+        synchronized (prepared) {
+            return prepared.size();
+        }
+    }
+
+    /**
+     *  Get the number of query results in the cache
+     *
+     * @return
+     *  The number of query results
+     */
+    public int resultsSize() {
+        synchronized (results) {
+            return results.size();
+        }
+    }
+
+    /**
+     *  Removes every entry from the cache. Hits and misses are not reset
+     */
+    public void clear() {
+        synchronized (prepared) {
+            prepared.clear();
+        }
+        synchronized (results) {
+            results.clear();
+        }
+    }
+
+    /**
+     *  Prepares a {@code String} object to be compared, or gets it from the cache
+     *
+     * @param s
+     * @return
+     *  A lower case {@code String} object without spaces and accents
+     * @see Compare#prepareToCompare(String)
+     */
+    String prepare(String s) {
+        String p;
+        synchronized (prepared) {
+            p = prepared.get(s);
+        }
+        if(p != null) {
+            preparedHits.incrementAndGet();
+            return p;
+        }
+
+        preparedMisses.incrementAndGet();
+        p = Preparer.prepareToCompare(s);
+        synchronized (prepared) {
+            prepared.put(s, p);
+        }
+        return p;
+    }
+
+    /**
+     *  Get the result of a query
+     *
+     * @param key
+     *  The query, see {@link ResultKey}
+     * @return
+     *  The result, or null if it is not in the cache
+     */
+    Object result(ResultKey key) {
+        Object result;
+        synchronized (results) {
+            result = results.get(key);
+        }
+        if(result != null)
+            resultHits.incrementAndGet();
+        else
+            resultMisses.incrementAndGet();
+        return result;
+    }
+
+    /**
+     *  Puts the result of a query in the cache
+     *
+     * @param key
+     *  The query, see {@link ResultKey}
+     * @param result
+     *  The result, it must not be null and it must not change later
+     */
+    void putResult(ResultKey key, Object result) {
+        synchronized (results) {
+            results.put(key, result);
+        }
+    }
+
+    /**
+     *  Identifies a query on a set of {@code String} objects
+     */
+    static final class ResultKey {
+
+        private final Object source;
+        private final String method;
+        private final String string;
+        private final int minRate;
+        private final int k;
+        private final boolean scrollCompare;
+
+        /**
+         *  Construct a new instance of {@code ResultKey}
+         *
+         * @param source
+         *  The set of {@code String} objects, compared by identity
+         * @param method
+         *  The name of the query method
+         * @param string
+         *  The {@code String} object used as comparison
+         * @param minRate
+         *  The lowest compare rate of the query
+         * @param k
+         *  The greatest number of results of the query, or 0
+         * @param scrollCompare
+         *  Use scrolling compare mode
+         */
+        ResultKey(Object source, String method, String string, int minRate, int k, boolean scrollCompare) {
+            this.source = source;
+            this.method = method;
+            this.string = string;
+            this.minRate = minRate;
+            this.k = k;
+            this.scrollCompare = scrollCompare;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if(!(o instanceof ResultKey))
+                return false;
+
+            ResultKey key = (ResultKey) o;
+            return source == key.source && method.equals(key.method) && string.equals(key.string) &&
+                    minRate == key.minRate && k == key.k && scrollCompare == key.scrollCompare;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = System.identityHashCode(source);
+            hash = 31 * hash + method.hashCode();
+            hash = 31 * hash + string.hashCode();
+            hash = 31 * hash + minRate;
+            hash = 31 * hash + k;
+            return 31 * hash + (scrollCompare ? 1 : 0);
+        }
+    }
+
+    /**
+     *  A map that discards the least recently used entry when it gets more than {@code maxEntries} entries.
+     *  It is not thread safe
+     */
+    private static class Lru<K, V> extends LinkedHashMap<K, V> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int maxEntries;
+
+        Lru(int maxEntries) {
+            super(16, 0.75f, true);
+            this.maxEntries = maxEntries;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            return size() > maxEntries;
+        }
+    }
+}
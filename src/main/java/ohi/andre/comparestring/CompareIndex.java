@@ -0,0 +1,720 @@
+package ohi.andre.comparestring;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import ohi.andre.comparestring.Compare.CompareInfo;
+
+/**
+ *  A set of {@code String} objects prepared once to be compared many times.
+ *  The lower case forms without spaces and accents of the elements are computed when
+ *  the index is built and stored one after the other in flat arrays, so a query only
+ *  needs to prepare the {@code String} object used as comparison.
+ *  The prepared forms made only of Latin-1 chars, nearly all of them after the accents are removed,
+ *  take a {@code byte} per char; the others are kept in a separate {@code char} array.
+ *  Every query method gives the same result of the corresponding method in {@link Compare}.
+ *  <p>
+ *  The elements are also grouped by the length of their prepared form, and a mask of their
+ *  chars is kept (see {@link Compare#rateBound(int, long, int, long, boolean)}): queries skip
+ *  the groups and the elements that can't get a rate good enough to change the result,
+ *  without reading their chars
+ */
+public class CompareIndex extends GroupedIndex {
+
+    private final String[] strings;
+    private final long[] masks;
+
+    /**
+     * The prepared forms made only of Latin-1 chars, a byte per char: the element i goes from
+     * latin1Offsets[i] to latin1Offsets[i + 1]
+     */
+    private final byte[] latin1;
+    private final int[] latin1Offsets;
+
+    /**
+     * The other prepared forms, null if there are none: the element i goes from
+     * utf16Offsets[i] to utf16Offsets[i + 1]. An element is in one of the arrays only
+     */
+    private final char[] utf16;
+    private final int[] utf16Offsets;
+
+    /**
+     * The positions of the null or empty elements, their rate is always 0
+     */
+    private final int[] empty;
+
+    /**
+     * The positions of the other elements grouped by prepared length: the group i goes
+     * from groupStarts[i] to groupStarts[i + 1] in groupIndexes, and its elements are long groupLengths[i]
+     */
+    private final int[] groupLengths;
+    private final int[] groupStarts;
+    private final int[] groupIndexes;
+
+    private volatile CompareCache cache;
+
+    /**
+     *  Construct a new instance of {@code CompareIndex}
+     *
+     * @param strings
+     *  The set of {@code String} objects. The array is copied, later changes are not seen by the index
+     */
+    public CompareIndex(String[] strings) {
+        this(strings.clone(), prepare(strings));
+    }
+
+    /**
+     *  Construct a new instance of {@code CompareIndex} from elements that are already prepared
+     *
+     * @param strings
+     *  The set of {@code String} objects, it is not copied
+     * @param prepared
+     *  The prepared form of every element, or null for the null or empty elements
+     */
+    CompareIndex(String[] strings, String[] prepared) {
+        this.strings = strings;
+        this.latin1Offsets = new int[this.strings.length + 1];
+
+        boolean[] wide = new boolean[prepared.length];
+        int latin1Length = 0, utf16Length = 0;
+        for (int count = 0; count < prepared.length; count++) {
+            if(prepared[count] == null)
+                continue;
+
+            wide[count] = !isLatin1(prepared[count]);
+            if(wide[count])
+                utf16Length += prepared[count].length();
+            else
+                latin1Length += prepared[count].length();
+        }
+
+        this.latin1 = new byte[latin1Length];
+        this.utf16 = utf16Length > 0 ? new char[utf16Length] : null;
+        this.utf16Offsets = utf16Length > 0 ? new int[this.strings.length + 1] : null;
+        int latin1Offset = 0, utf16Offset = 0;
+        for (int count = 0; count < prepared.length; count++) {
+            latin1Offsets[count] = latin1Offset;
+            if(utf16Offsets != null)
+                utf16Offsets[count] = utf16Offset;
+
+            String p = prepared[count];
+            if(p == null)
+                continue;
+
+            if(wide[count]) {
+                p.getChars(0, p.length(), utf16, utf16Offset);
+                utf16Offset += p.length();
+            } else {
+                for (int i = 0; i < p.length(); i++) {
+                    latin1[latin1Offset + i] = (byte) p.charAt(i);
+                }
+                latin1Offset += p.length();
+            }
+        }
+        latin1Offsets[prepared.length] = latin1Offset;
+        if(utf16Offsets != null)
+            utf16Offsets[prepared.length] = utf16Offset;
+
+        this.masks = new long[prepared.length];
+        int emptyCount = 0, maxLength = 0;
+        for (int count = 0; count < prepared.length; count++) {
+            if(prepared[count] == null) {
+                emptyCount++;
+            } else {
+                masks[count] = wide[count] ? Compare.charMask(utf16, utf16Offsets[count], length(count)) :
+                        Compare.charMask(latin1, latin1Offsets[count], length(count));
+                maxLength = Math.max(maxLength, length(count));
+            }
+        }
+
+        int[] lengthCounts = new int[maxLength + 1];
+        for (int count = 0; count < prepared.length; count++) {
+            if(prepared[count] != null)
+                lengthCounts[length(count)]++;
+        }
+
+        int groups = 0;
+        for (int lengthCount : lengthCounts) {
+            if(lengthCount > 0)
+                groups++;
+        }
+
+        this.groupLengths = new int[groups];
+        this.groupStarts = new int[groups + 1];
+        int[] groupOfLength = new int[maxLength + 1];
+        for (int l = 0, group = 0, start = 0; l <= maxLength; l++) {
+            if(lengthCounts[l] > 0) {
+                groupLengths[group] = l;
+                groupStarts[group] = start;
+                groupOfLength[l] = group;
+                start += lengthCounts[l];
+                group++;
+            }
+        }
+        groupStarts[groups] = prepared.length - emptyCount;
+
+        this.empty = new int[emptyCount];
+        this.groupIndexes = new int[prepared.length - emptyCount];
+        int[] groupEnds = new int[groups];
+        System.arraycopy(groupStarts, 0, groupEnds, 0, groups);
+        for (int count = 0, e = 0; count < prepared.length; count++) {
+            if(prepared[count] == null)
+                empty[e++] = count;
+            else
+                groupIndexes[groupEnds[groupOfLength[length(count)]]++] = count;
+        }
+    }
+
+    /**
+     *  Construct a new instance of {@code CompareIndex}
+     *
+     * @param strings
+     *  The set of {@code String} objects
+     */
+    public CompareIndex(Collection<String> strings) {
+        this(strings.toArray(new String[strings.size()]));
+    }
+
+    /**
+     *  Prepares the elements of a set
+     *
+     * @param strings
+     *  The set of {@code String} objects
+     * @return
+     *  The prepared form of every element, or null for the null or empty elements
+     */
+    static String[] prepare(String[] strings) {
+        String[] prepared = new String[strings.length];
+        for (int count = 0; count < strings.length; count++) {
+            prepared[count] = prepare(strings[count]);
+        }
+        return prepared;
+    }
+
+    /**
+     *  Tells if a prepared element can be stored a byte per char
+     *
+     * @param prepared
+     *  The prepared form of the element
+     * @return
+     *  True if every char is from 0 to 255
+     */
+    private static boolean isLatin1(String prepared) {
+        for (int count = 0; count < prepared.length(); count++) {
+            if(prepared.charAt(count) > 0xFF)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     *  Prepares an element of a set
+     *
+     * @param string
+     *  The {@code String} object to prepare
+     * @return
+     *  The prepared form of the element, or null if it is null or empty
+     */
+    static String prepare(String string) {
+        return string != null && string.length() > 0 ? Preparer.prepareToCompare(string) : null;
+    }
+
+    /**
+     *  Get the number of {@code String} objects in the index
+     *
+     * @return
+     *  The size of the set of {@code String} objects
+     */
+    @Override
+    public int size() {
+        return strings.length;
+    }
+
+    /**
+     *  Sets the cache used by the queries of this index, for the prepared queries and their results.
+     *  The index never changes, so a result in the cache is always valid
+     *
+     * @param cache
+     *  The cache, or null to cache nothing
+     */
+    public void setCache(CompareCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     *  Get the cache used by the queries of this index
+     *
+     * @return
+     *  The cache, or null if nothing is cached
+     */
+    public CompareCache getCache() {
+        return cache;
+    }
+
+    /**
+     *  Get an element of the index
+     *
+     * @param index
+     *  The position of the element
+     * @return
+     *  The {@code String} object at the given position, as it was given to the index
+     */
+    public String get(int index) {
+        return strings[index];
+    }
+
+    /**
+     *  Compare the {@code String} parameter to every element of the index, and
+     *  returns the most similar {@code String}, or null if the greatest rate is lower
+     *  than {@code minRate}
+     *
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be returned
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  The most similar {@code String} object in the index, or null if nothing was found
+     * @see Compare#similarString(String[], String, int, boolean)
+     */
+    public String similarString(String string, int minRate, boolean scrollCompare) {
+
+        if(string == null || strings.length == 0 || string.length() == 0) {
+            return null;
+        }
+
+        CompareMetrics metrics = Compare.metrics();
+        long start = metrics != null ? System.nanoTime() : 0L;
+
+        int index;
+        CompareCache cache = this.cache;
+        if(cache == null) {
+            index = similarIndex(prepareQuery(string), minRate, scrollCompare);
+        } else {
+            CompareCache.ResultKey key = new CompareCache.ResultKey(this, "similarString", string, minRate, 0, scrollCompare);
+            Integer cached = (Integer) cache.result(key);
+            if(cached == null) {
+                cached = similarIndex(prepareQuery(string), minRate, scrollCompare);
+                cache.putResult(key, cached);
+            }
+            index = cached;
+        }
+
+        if(metrics != null)
+            metrics.query(System.nanoTime() - start, index == -1 ? 0 : 1);
+        return index == -1 ? null : strings[index];
+    }
+
+    /**
+     *  Compare the {@code String} parameter to every element of the index, and
+     *  returns the most similar {@code String}
+     *
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  The most similar {@code String} object in the index, or null if nothing was found
+     * @see Compare#similarString(String[], String, boolean)
+     */
+    public String similarString(String string, boolean scrollCompare) {
+        return similarString(string, Compare.LOWER_RATE, scrollCompare);
+    }
+
+    /**
+     *  Compare the {@code String} parameter with every element of the index, and
+     *  returns every similar {@code String} object with a rate greater than {@code minRate}
+     *
+     * @param similarStrings
+     *  Similar {@code String} objects will be put here
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be considered similar
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @see Compare#similarStrings(List, String[], String, int, boolean)
+     */
+    public void similarStrings(List<String> similarStrings, String string, int minRate, boolean scrollCompare) {
+
+        if(similarStrings == null || string == null || strings.length == 0 || string.length() == 0) {
+            return;
+        }
+
+        CompareMetrics metrics = Compare.metrics();
+        long start = metrics != null ? System.nanoTime() : 0L;
+
+        long[] found = find(string, minRate, false, scrollCompare);
+        for (long f : found) {
+            similarStrings.add(strings[(int) (f >>> 32)]);
+        }
+
+        if(metrics != null)
+            metrics.query(System.nanoTime() - start, found.length);
+    }
+
+    /**
+     *  Compare the {@code String} parameter with every element of the index, and
+     *  returns every similar {@code String} object with a rate greater than {@code minRate}
+     *
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be considered similar
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  A list containing all of the similar {@code String} objects
+     * @see Compare#similarStrings(String[], String, int, boolean)
+     */
+    public List<String> similarStrings(String string, int minRate, boolean scrollCompare) {
+        List<String> list = new ArrayList<>();
+        similarStrings(list, string, minRate, scrollCompare);
+        return list;
+    }
+
+    /**
+     *  Returns a compare rate for every {@code String} object in the index (if the rate
+     *  is equal or greater to {@code minRate}
+     *  This is not sorted!
+     *
+     * @param compareInfoList
+     *  The method will add here the {@code CompareInfo} objects
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be considered similar
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @see Compare#compareInfo(List, String[], String, int, boolean)
+     */
+    public void compareInfo(List<CompareInfo> compareInfoList, String string, int minRate, boolean scrollCompare) {
+
+        if(compareInfoList == null || string == null || strings.length == 0 || string.length() == 0) {
+            return;
+        }
+
+        compareInfoList.addAll(compareResults(string, minRate, scrollCompare).asList());
+    }
+
+    /**
+     *  Returns a compare rate for every {@code String} object in the index (if the rate
+     *  is equal or greater to {@code minRate}) in primitive arrays, without a {@code CompareInfo} object for every element.
+     *  This is not sorted!
+     *
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be considered similar
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  The positions in the index and the rates of the same elements of {@link #compareInfo(String, int, boolean)}
+     * @see Compare#compareResults(String[], String, int, boolean)
+     */
+    public CompareResults compareResults(String string, int minRate, boolean scrollCompare) {
+        if(string == null || strings.length == 0 || string.length() == 0) {
+            return new CompareResults(this::get, 0);
+        }
+
+        CompareMetrics metrics = Compare.metrics();
+        long start = metrics != null ? System.nanoTime() : 0L;
+
+        long[] found = find(string, minRate, minRate == -1, scrollCompare);
+        if(metrics != null)
+            metrics.query(System.nanoTime() - start, found.length);
+        return new CompareResults(this::get, found);
+    }
+
+    /**
+     *  Returns a compare rate for every {@code String} object in the index (if the rate
+     *  is equal or greater to {@code minRate}
+     *  This is not sorted!
+     *
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be considered similar
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  A list containing the {@code CompareInfo} objects for every
+     *  {@code String} object in the index
+     * @see Compare#compareInfo(String[], String, int, boolean)
+     */
+    public List<CompareInfo> compareInfo(String string, int minRate, boolean scrollCompare) {
+        List<CompareInfo> infos = new ArrayList<>();
+        compareInfo(infos, string, minRate, scrollCompare);
+        return infos;
+    }
+
+    /**
+     *  Returns a compare rate for every {@code String} object in the index
+     *  This is not sorted!
+     *
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  A list containing the rates for every {@code String} object in the index
+     * @see Compare#compareInfo(String[], String, boolean)
+     */
+    public List<CompareInfo> compareInfo(String string, boolean scrollCompare) {
+        return compareInfo(string, Compare.LOWER_RATE, scrollCompare);
+    }
+
+    /**
+     *  Returns the {@code k} {@code String} objects in the index with the greatest compare rate
+     *  (if the rate is equal or greater to {@code minRate}), sorted from the most similar.
+     *  Elements with the same rate keep the order of the index
+     *
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param k
+     *  The greatest number of {@code CompareInfo} objects to return
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be considered similar
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  A sorted list containing at most {@code k} {@code CompareInfo} objects
+     * @see Compare#topK(String[], String, int, int, boolean)
+     */
+    public List<CompareInfo> topK(String string, int k, int minRate, boolean scrollCompare) {
+        if(string == null || strings.length == 0 || string.length() == 0 || k <= 0) {
+            return new ArrayList<>();
+        }
+
+        CompareMetrics metrics = Compare.metrics();
+        long start = metrics != null ? System.nanoTime() : 0L;
+
+        long[] found;
+        CompareCache cache = this.cache;
+        if(cache == null) {
+            found = topK(prepareQuery(string), k, minRate, scrollCompare);
+        } else {
+            CompareCache.ResultKey key = new CompareCache.ResultKey(this, "topK", string, minRate, k, scrollCompare);
+            found = (long[]) cache.result(key);
+            if(found == null) {
+                found = topK(prepareQuery(string), k, minRate, scrollCompare);
+                cache.putResult(key, found);
+            }
+        }
+
+        if(metrics != null)
+            metrics.query(System.nanoTime() - start, found.length);
+        return new ArrayList<>(new CompareResults(this::get, found).asList());
+    }
+
+    /**
+     *  Finds every element with a compare rate equal or greater to {@code minRate}, or gets them from the cache
+     *
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param minRate
+     *  The lowest compare rate that an element has to get
+     * @param everyRate
+     *  Find every element, whatever its rate
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  The position of every element found in the high 32 bits and its rate in the low 32 bits,
+     *  sorted by position
+     */
+    private long[] find(String string, int minRate, boolean everyRate, boolean scrollCompare) {
+        CompareCache cache = this.cache;
+        if(cache == null)
+            return everyRate ? rateAll(prepareQuery(string), scrollCompare) : collect(prepareQuery(string), minRate, scrollCompare);
+
+        CompareCache.ResultKey key = new CompareCache.ResultKey(this, everyRate ? "rateAll" : "collect", string,
+                everyRate ? 0 : minRate, 0, scrollCompare);
+        long[] found = (long[]) cache.result(key);
+        if(found == null) {
+            found = everyRate ? rateAll(prepareQuery(string), scrollCompare) : collect(prepareQuery(string), minRate, scrollCompare);
+            cache.putResult(key, found);
+        }
+        return found;
+    }
+
+    private char[] prepareQuery(String string) {
+        CompareCache cache = this.cache;
+        return (cache != null ? cache.prepare(string) : Compare.prepareToCompare(string)).toCharArray();
+    }
+
+    /**
+     *  Get the prepared forms of the elements one after the other, for the classes that build
+     *  their own structures from them. The array is built at every call, the index doesn't keep it
+     *
+     * @return
+     *  The prepared chars of every element
+     */
+    char[] chars() {
+        char[] chars = new char[offset(size())];
+        for (int count = 0; count < size(); count++) {
+            if(isWide(count))
+                System.arraycopy(utf16, utf16Offsets[count], chars, offset(count), length(count));
+            else
+                Compare.widen(latin1, latin1Offsets[count], length(count), chars, offset(count));
+        }
+        return chars;
+    }
+
+    /**
+     *  Get the index of the first prepared char of an element
+     *
+     * @param index
+     *  The position of the element in the index
+     * @return
+     *  The offset of the element in {@link #chars()}
+     */
+    int offset(int index) {
+        return utf16Offsets == null ? latin1Offsets[index] : latin1Offsets[index] + utf16Offsets[index];
+    }
+
+    /**
+     *  Get the length of the prepared form of an element
+     *
+     * @param index
+     *  The position of the element in the index
+     * @return
+     *  The number of prepared chars of the element
+     */
+    @Override
+    int length(int index) {
+        int length = latin1Offsets[index + 1] - latin1Offsets[index];
+        if(utf16Offsets != null)
+            length += utf16Offsets[index + 1] - utf16Offsets[index];
+        return length;
+    }
+
+    /**
+     *  Tells if the prepared form of an element is in the {@code char} array
+     *
+     * @param index
+     *  The position of the element in the index
+     * @return
+     *  True if the element has a char greater than 255
+     */
+    private boolean isWide(int index) {
+        return utf16Offsets != null && utf16Offsets[index + 1] > utf16Offsets[index];
+    }
+
+    /**
+     *  Compares an element of the index to a prepared query. A Latin-1 element is compared
+     *  from its bytes in linear mode, in scrolling mode it is widened first
+     *
+     * @param index
+     *  The position of the element in the index
+     * @param query
+     *  The prepared {@code String} object used as comparison
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  The compare rate of the element
+     */
+    @Override
+    int rate(int index, char[] query, boolean scrollCompare) {
+        String current = strings[index];
+        if(current == null || current.length() == 0)
+            return 0;
+
+        int length = length(index);
+        if(isWide(index)) {
+            int offset = utf16Offsets[index];
+            return scrollCompare ? Compare.scrollRate(utf16, offset, length, query, 0, query.length) :
+                    Compare.linearRate(utf16, offset, length, query, 0, query.length);
+        }
+
+        int offset = latin1Offsets[index];
+        if(!scrollCompare)
+            return Compare.linearRate(latin1, offset, length, query, 0, query.length);
+
+        char[] chars = Compare.scratch(length);
+        Compare.widen(latin1, offset, length, chars, 0);
+        return Compare.scrollRate(chars, 0, length, query, 0, query.length);
+    }
+
+    /**
+     *  Performs {@link Compare#step(int, char, char[], int, boolean, boolean)} with an element of the index
+     *  as the longer sequence
+     *
+     * @param index
+     *  The position of the element in the index
+     * @param state
+     *  The state returned by the previous step, 0 for the first one
+     * @param c
+     *  The char of the shorter sequence
+     * @param position
+     *  The index of the prepared char of the element at the position of {@code c}
+     * @param first
+     *  True if {@code c} is the first char of the shorter sequence
+     * @param hasNext
+     *  True if the element has a char after the position of {@code c}
+     * @return
+     *  The new state
+     */
+    int step(int index, int state, char c, int position, boolean first, boolean hasNext) {
+        if(isWide(index))
+            return Compare.step(state, c, utf16, utf16Offsets[index] + position, first, hasNext);
+        return Compare.step(state, c, latin1, latin1Offsets[index] + position, first, hasNext);
+    }
+
+    /**
+     *  Performs {@link Compare#linearSteps(char[], int, int, char[], int, int)} with an element of the index
+     *  as the shorter sequence
+     *
+     * @param max
+     *  The array containing the longer sequence
+     * @param maxOffset
+     *  The index of the first char of the longer sequence
+     * @param maxLength
+     *  The length of the longer sequence
+     * @param index
+     *  The position of the element in the index
+     * @return
+     *  The points earned by the prepared chars of the element
+     */
+    float linearSteps(char[] max, int maxOffset, int maxLength, int index) {
+        if(isWide(index))
+            return Compare.linearSteps(max, maxOffset, maxLength, utf16, utf16Offsets[index], length(index));
+        return Compare.linearSteps(max, maxOffset, maxLength, latin1, latin1Offsets[index], length(index));
+    }
+
+    @Override
+    long mask(int index) {
+        return masks[index];
+    }
+
+    @Override
+    int emptyCount() {
+        return empty.length;
+    }
+
+    @Override
+    int empty(int e) {
+        return empty[e];
+    }
+
+    @Override
+    int groupCount() {
+        return groupLengths.length;
+    }
+
+    @Override
+    int groupLength(int group) {
+        return groupLengths[group];
+    }
+
+    @Override
+    int groupStart(int group) {
+        return groupStarts[group];
+    }
+
+    @Override
+    int groupIndex(int g) {
+        return groupIndexes[g];
+    }
+}
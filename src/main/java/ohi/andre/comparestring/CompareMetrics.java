@@ -0,0 +1,236 @@
+package ohi.andre.comparestring;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ *  Counters of the work done by the queries, for the host application to export to its own registry.
+ *  They are {@link LongAdder} objects, so threads that record at the same time don't contend.
+ *  <p>
+ *  The hooks are compiled only when the system property {@code ohi.andre.comparestring.metrics} is {@code true}
+ *  at startup: otherwise {@link #isEnabled()} is a constant false, the hooks are dead branches and
+ *  {@link Compare#setMetrics(CompareMetrics)} can't be used. When enabled, an instance counts nothing until it is
+ *  set with {@link Compare#setMetrics(CompareMetrics)}.
+ *  <p>
+ *  The queries of {@link Compare} and {@link CompareIndex} on a set are counted, every comparison done by any class
+ *  is counted as a scored candidate. The methods of {@link Compare} that return a lazy {@code Stream} are the exception:
+ *  the caller may stop consuming the {@code Stream} at any time, so they are not counted as queries,
+ *  while their comparisons are still counted as scored candidates
+ */
+public final class CompareMetrics {
+
+    static final String METRICS_PROPERTY = "ohi.andre.comparestring.metrics";
+
+    static final boolean ENABLED = Boolean.getBoolean(METRICS_PROPERTY);
+
+    /**
+     * The latency of a query goes in the bucket of the number of bits of its nanoseconds
+     */
+    private static final int BUCKETS = 64;
+
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder queryNanos = new LongAdder();
+    private final LongAdder results = new LongAdder();
+    private final LongAdder normalizations = new LongAdder();
+    private final LongAdder normalizationNanos = new LongAdder();
+    private final LongAdder candidates = new LongAdder();
+    private final LongAdder greaterRates = new LongAdder();
+    private final LongAdder scoringNanos = new LongAdder();
+    private final LongAdder scrollWindows = new LongAdder();
+    private final LongAdder[] latency = new LongAdder[BUCKETS];
+
+    /**
+     *  Construct a new instance of {@code CompareMetrics} with every counter at 0
+     */
+    public CompareMetrics() {
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            latency[bucket] = new LongAdder();
+        }
+    }
+
+    /**
+     *  Tells if the hooks were compiled
+     *
+     * @return
+     *  True if the system property {@code ohi.andre.comparestring.metrics} was {@code true} at startup
+     */
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * @return
+     *  The number of queries on a set
+     */
+    public long queries() {
+        return queries.sum();
+    }
+
+    /**
+     * @return
+     *  The nanoseconds spent by the queries on a set
+     */
+    public long queryNanos() {
+        return queryNanos.sum();
+    }
+
+    /**
+     * @return
+     *  The number of elements returned by the queries, 1 for every {@code String} object found by a similarString query
+     */
+    public long results() {
+        return results.sum();
+    }
+
+    /**
+     * @return
+     *  The number of {@code String} objects prepared to be compared
+     */
+    public long normalizations() {
+        return normalizations.sum();
+    }
+
+    /**
+     * @return
+     *  The nanoseconds spent to prepare {@code String} objects
+     */
+    public long normalizationNanos() {
+        return normalizationNanos.sum();
+    }
+
+    /**
+     * @return
+     *  The number of comparisons of two prepared {@code String} objects
+     */
+    public long candidates() {
+        return candidates.sum();
+    }
+
+    /**
+     * @return
+     *  The number of comparisons that gave the greatest rate
+     */
+    public long greaterRates() {
+        return greaterRates.sum();
+    }
+
+    /**
+     * @return
+     *  The nanoseconds spent to compare prepared {@code String} objects
+     */
+    public long scoringNanos() {
+        return scoringNanos.sum();
+    }
+
+    /**
+     * @return
+     *  The number of windows compared in scrolling mode, without the ones skipped because they couldn't win
+     */
+    public long scrollWindows() {
+        return scrollWindows.sum();
+    }
+
+    /**
+     *  Get the histogram of the latency of the queries on a set
+     *
+     * @return
+     *  The number of queries that took from 2^(i-1) to 2^i - 1 nanoseconds at the position i, 0 nanoseconds at the position 0
+     */
+    public long[] latencyHistogram() {
+        long[] histogram = new long[BUCKETS];
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            histogram[bucket] = latency[bucket].sum();
+        }
+        return histogram;
+    }
+
+    /**
+     *  Get the value of every counter, to be exported
+     *
+     * @return
+     *  A map from the name of every counter to its value
+     */
+    public Map<String, Long> toMap() {
+        Map<String, Long> map = new LinkedHashMap<>();
+        map.put("queries", queries());
+        map.put("queryNanos", queryNanos());
+        map.put("results", results());
+        map.put("normalizations", normalizations());
+        map.put("normalizationNanos", normalizationNanos());
+        map.put("candidates", candidates());
+        map.put("greaterRates", greaterRates());
+        map.put("scoringNanos", scoringNanos());
+        map.put("scrollWindows", scrollWindows());
+        return map;
+    }
+
+    /**
+     *  Sets every counter to 0
+     */
+    public void reset() {
+        queries.reset();
+        queryNanos.reset();
+        results.reset();
+        normalizations.reset();
+        normalizationNanos.reset();
+        candidates.reset();
+        greaterRates.reset();
+        scoringNanos.reset();
+        scrollWindows.reset();
+        for (LongAdder bucket : latency) {
+            bucket.reset();
+        }
+    }
+
+    /**
+     *  Records a query on a set
+     *
+     * @param nanos
+     *  The time spent by the query
+     * @param found
+     *  The number of elements returned
+     */
+    void query(long nanos, int found) {
+        queries.increment();
+        queryNanos.add(nanos);
+        results.add(found);
+        latency[64 - Long.numberOfLeadingZeros(Math.max(nanos, 0L)) & (BUCKETS - 1)].increment();
+    }
+
+    /**
+     *  Records the preparation of a {@code String} object
+     *
+     * @param nanos
+     *  The time spent to prepare it
+     */
+    void normalized(long nanos) {
+        normalizations.increment();
+        normalizationNanos.add(nanos);
+    }
+
+    /**
+     *  Records a comparison of two prepared {@code String} objects
+     *
+     * @param nanos
+     *  The time spent to compare them
+     * @param greater
+     *  True if the comparison gave the greatest rate
+     */
+    void scored(long nanos, boolean greater) {
+        candidates.increment();
+        scoringNanos.add(nanos);
+        if(greater)
+            greaterRates.increment();
+    }
+
+    /**
+     *  Records the windows compared by a comparison in scrolling mode
+     *
+     * @param windows
+     *  The number of windows compared
+     */
+    void windows(int windows) {
+        scrollWindows.add(windows);
+    }
+}
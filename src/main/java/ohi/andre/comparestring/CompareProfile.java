@@ -0,0 +1,335 @@
+package ohi.andre.comparestring;
+
+/**
+ *  The weights and the preparation used by a {@link Comparer}. An instance is immutable,
+ *  and it is built by a {@link Builder} starting from the values used by {@link Compare}.
+ *  <p>
+ *  A char of the shorter {@code String} object that matches the longer one earns {@link #baseValue()} points,
+ *  otherwise it loses {@link #subtractValue()}. In linear mode {@link #lengthScale()} points are subtracted
+ *  for every char of difference between the lengths, in scrolling mode {@link #scrollScale()} points are subtracted
+ *  for every char the window is moved by
+ */
+public final class CompareProfile {
+
+    /**
+     * The profile of the static methods of {@link Compare}
+     */
+    public static final CompareProfile DEFAULT = new Builder().build();
+
+    private final int greaterRate;
+    private final int lowerRate;
+    private final float baseValue;
+    private final float subtractValue;
+    private final float scrollScale;
+    private final float lengthScale;
+    private final boolean foldAccents;
+    private final boolean removeSpaces;
+    private final boolean lowerCase;
+
+    private CompareProfile(Builder builder) {
+        this.greaterRate = builder.greaterRate;
+        this.lowerRate = builder.lowerRate;
+        this.baseValue = builder.baseValue;
+        this.subtractValue = builder.subtractValue;
+        this.scrollScale = builder.scrollScale;
+        this.lengthScale = builder.lengthScale;
+        this.foldAccents = builder.foldAccents;
+        this.removeSpaces = builder.removeSpaces;
+        this.lowerCase = builder.lowerCase;
+    }
+
+    /**
+     *  Get a {@code Builder} that starts from the values of this profile
+     *
+     * @return
+     *  A new {@code Builder}
+     */
+    public Builder toBuilder() {
+        return new Builder(this);
+    }
+
+    /**
+     * @return
+     *  The rate of two {@code String} objects that match entirely in linear mode
+     */
+    public int greaterRate() {
+        return greaterRate;
+    }
+
+    /**
+     * @return
+     *  The rate that every result has to beat, and the default lowest rate
+     */
+    public int lowerRate() {
+        return lowerRate;
+    }
+
+    /**
+     * @return
+     *  The points earned by a matched char
+     */
+    public float baseValue() {
+        return baseValue;
+    }
+
+    /**
+     * @return
+     *  The points lost by a char that does not match
+     */
+    public float subtractValue() {
+        return subtractValue;
+    }
+
+    /**
+     * @return
+     *  The points lost for every char a window is moved by, in scrolling mode
+     */
+    public float scrollScale() {
+        return scrollScale;
+    }
+
+    /**
+     * @return
+     *  The points lost for every char of difference between the lengths, in linear mode
+     */
+    public float lengthScale() {
+        return lengthScale;
+    }
+
+    /**
+     * @return
+     *  True if accents are removed before comparing
+     */
+    public boolean foldAccents() {
+        return foldAccents;
+    }
+
+    /**
+     * @return
+     *  True if spaces are removed before comparing
+     */
+    public boolean removeSpaces() {
+        return removeSpaces;
+    }
+
+    /**
+     * @return
+     *  True if letters are turned to lower case before comparing
+     */
+    public boolean lowerCase() {
+        return lowerCase;
+    }
+
+    /**
+     *  Tells if this profile gives the same rates of {@link #DEFAULT}
+     *
+     * @return
+     *  True if every value is the same of {@link #DEFAULT}
+     */
+    boolean isDefault() {
+        return equals(DEFAULT);
+    }
+
+    /**
+     *  Get the changes of {@link Preparer} chosen by this profile
+     *
+     * @return
+     *  The flags of {@link Preparer#prepare(String, int)}
+     */
+    int preparerFlags() {
+        return (foldAccents ? Preparer.FOLD_ACCENTS : 0) | (removeSpaces ? Preparer.REMOVE_SPACES : 0) |
+                (lowerCase ? Preparer.LOWER_CASE : 0);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if(this == o)
+            return true;
+        if(!(o instanceof CompareProfile))
+            return false;
+
+        CompareProfile other = (CompareProfile) o;
+        return greaterRate == other.greaterRate && lowerRate == other.lowerRate &&
+                Float.compare(baseValue, other.baseValue) == 0 && Float.compare(subtractValue, other.subtractValue) == 0 &&
+                Float.compare(scrollScale, other.scrollScale) == 0 && Float.compare(lengthScale, other.lengthScale) == 0 &&
+                foldAccents == other.foldAccents && removeSpaces == other.removeSpaces && lowerCase == other.lowerCase;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = greaterRate;
+        hash = 31 * hash + lowerRate;
+        hash = 31 * hash + Float.floatToIntBits(baseValue);
+        hash = 31 * hash + Float.floatToIntBits(subtractValue);
+        hash = 31 * hash + Float.floatToIntBits(scrollScale);
+        hash = 31 * hash + Float.floatToIntBits(lengthScale);
+        return 31 * hash + preparerFlags();
+    }
+
+    /**
+     *  Builds a {@code CompareProfile}, starting from the values of {@link #DEFAULT}
+     */
+    public static final class Builder {
+
+        private int greaterRate = Compare.GREATER_RATE;
+        private int lowerRate = Compare.LOWER_RATE;
+        private float baseValue = Compare.COMPARE_BASE_VALUE;
+        private float subtractValue = Compare.COMPARE_SUBTRACT_VALUE;
+        private float scrollScale = Compare.SCROLL_COMPARE_SCALE;
+        private float lengthScale = Compare.LENGTH_SCALE;
+        private boolean foldAccents = true;
+        private boolean removeSpaces = true;
+        private boolean lowerCase = true;
+
+        /**
+         *  Construct a new instance of {@code Builder} with the values of {@link #DEFAULT}
+         */
+        public Builder() {}
+
+        private Builder(CompareProfile profile) {
+            this.greaterRate = profile.greaterRate;
+            this.lowerRate = profile.lowerRate;
+            this.baseValue = profile.baseValue;
+            this.subtractValue = profile.subtractValue;
+            this.scrollScale = profile.scrollScale;
+            this.lengthScale = profile.lengthScale;
+            this.foldAccents = profile.foldAccents;
+            this.removeSpaces = profile.removeSpaces;
+            this.lowerCase = profile.lowerCase;
+        }
+
+        /**
+         *  Set the rate of two {@code String} objects that match entirely in linear mode
+         *
+         * @param greaterRate
+         *  The rate of an entire match, {@link Compare#GREATER_RATE} by default
+         * @return
+         *  This {@code Builder}
+         */
+        public Builder greaterRate(int greaterRate) {
+            this.greaterRate = greaterRate;
+            return this;
+        }
+
+        /**
+         *  Set the rate that every result has to beat
+         *
+         * @param lowerRate
+         *  The lowest rate, {@link Compare#LOWER_RATE} by default
+         * @return
+         *  This {@code Builder}
+         */
+        public Builder lowerRate(int lowerRate) {
+            this.lowerRate = lowerRate;
+            return this;
+        }
+
+        /**
+         *  Set the points earned by a matched char
+         *
+         * @param baseValue
+         *  A finite number of points, {@link Compare#COMPARE_BASE_VALUE} by default
+         * @return
+         *  This {@code Builder}
+         */
+        public Builder baseValue(float baseValue) {
+            this.baseValue = baseValue;
+            return this;
+        }
+
+        /**
+         *  Set the points lost by a char that does not match
+         *
+         * @param subtractValue
+         *  A finite number of points, {@link Compare#COMPARE_SUBTRACT_VALUE} by default
+         * @return
+         *  This {@code Builder}
+         */
+        public Builder subtractValue(float subtractValue) {
+            this.subtractValue = subtractValue;
+            return this;
+        }
+
+        /**
+         *  Set the points lost for every char a window is moved by, in scrolling mode.
+         *  A negative value gives a bonus to the windows that start later
+         *
+         * @param scrollScale
+         *  A finite number of points, {@link Compare#SCROLL_COMPARE_SCALE} by default
+         * @return
+         *  This {@code Builder}
+         */
+        public Builder scrollScale(float scrollScale) {
+            this.scrollScale = scrollScale;
+            return this;
+        }
+
+        /**
+         *  Set the points lost for every char of difference between the lengths, in linear mode
+         *
+         * @param lengthScale
+         *  A finite number of points, {@link Compare#LENGTH_SCALE} by default
+         * @return
+         *  This {@code Builder}
+         */
+        public Builder lengthScale(float lengthScale) {
+            this.lengthScale = lengthScale;
+            return this;
+        }
+
+        /**
+         *  Choose if accents are removed before comparing
+         *
+         * @param foldAccents
+         *  True to remove accents, the default
+         * @return
+         *  This {@code Builder}
+         */
+        public Builder foldAccents(boolean foldAccents) {
+            this.foldAccents = foldAccents;
+            return this;
+        }
+
+        /**
+         *  Choose if spaces are removed before comparing
+         *
+         * @param removeSpaces
+         *  True to remove spaces, the default
+         * @return
+         *  This {@code Builder}
+         */
+        public Builder removeSpaces(boolean removeSpaces) {
+            this.removeSpaces = removeSpaces;
+            return this;
+        }
+
+        /**
+         *  Choose if letters are turned to lower case before comparing
+         *
+         * @param lowerCase
+         *  True to turn letters to lower case, the default
+         * @return
+         *  This {@code Builder}
+         */
+        public Builder lowerCase(boolean lowerCase) {
+            this.lowerCase = lowerCase;
+            return this;
+        }
+
+        /**
+         *  Builds the profile
+         *
+         * @return
+         *  A new immutable {@code CompareProfile}
+         * @throws IllegalArgumentException
+         *  If a weight is NaN or infinite
+         */
+        public CompareProfile build() {
+            if(!Float.isFinite(baseValue) || !Float.isFinite(subtractValue) || !Float.isFinite(scrollScale) ||
+                    !Float.isFinite(lengthScale))
+                throw new IllegalArgumentException("The weights of a profile must be finite numbers");
+
+            return new CompareProfile(this);
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package ohi.andre.comparestring;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.IntFunction;
+
+import ohi.andre.comparestring.Compare.CompareInfo;
+
+/**
+ *  The compare rates of a set of {@code String} objects, stored in two {@code int} arrays: the position
+ *  of every compared element in the set and its rate. Nothing is allocated for each element, the
+ *  {@code String} objects are read from the set when they are asked for.
+ *  <p>
+ *  The results keep the order of the set until {@link #sort()} is called.
+ *  {@link #asList()} gives a view of them as {@code CompareInfo} objects
+ */
+public final class CompareResults {
+
+    private final IntFunction<String> strings;
+    private int[] indexes;
+    private int[] rates;
+    private int size;
+
+    /**
+     *  Construct a new instance of {@code CompareResults}
+     *
+     * @param strings
+     *  Gives the element of the set at a position
+     * @param capacity
+     *  The initial capacity of the arrays
+     */
+    CompareResults(IntFunction<String> strings, int capacity) {
+        this.strings = strings;
+        this.indexes = new int[Math.max(capacity, 1)];
+        this.rates = new int[indexes.length];
+    }
+
+    /**
+     *  Construct a new instance of {@code CompareResults} from packed results
+     *
+     * @param strings
+     *  Gives the element of the set at a position
+     * @param found
+     *  The position of every element in the high 32 bits and its rate in the low 32 bits
+     */
+    CompareResults(IntFunction<String> strings, long[] found) {
+        this(strings, found.length);
+        for (long f : found) {
+            add((int) (f >>> 32), (int) f);
+        }
+    }
+
+    /**
+     *  Adds the rate of an element
+     *
+     * @param index
+     *  The position of the element in the set
+     * @param rate
+     *  The compare rate of the element
+     */
+    void add(int index, int rate) {
+        if(size == indexes.length) {
+            indexes = Arrays.copyOf(indexes, size * 2);
+            rates = Arrays.copyOf(rates, size * 2);
+        }
+        indexes[size] = index;
+        rates[size] = rate;
+        size++;
+    }
+
+    /**
+     *  Get the number of results
+     *
+     * @return
+     *  The number of compared elements
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     *  Get the position of a compared element
+     *
+     * @param i
+     *  The position of the result, from 0 to {@link #size()}
+     * @return
+     *  The position of the element in the set
+     */
+    public int index(int i) {
+        checkIndex(i);
+        return indexes[i];
+    }
+
+    /**
+     *  Get the compare rate of an element
+     *
+     * @param i
+     *  The position of the result, from 0 to {@link #size()}
+     * @return
+     *  The compare rate of the element
+     */
+    public int rate(int i) {
+        checkIndex(i);
+        return rates[i];
+    }
+
+    /**
+     *  Get a compared element
+     *
+     * @param i
+     *  The position of the result, from 0 to {@link #size()}
+     * @return
+     *  The compared {@code String} object
+     */
+    public String string(int i) {
+        return strings.apply(index(i));
+    }
+
+    /**
+     *  Sorts the results in place from the greatest rate, elements with the same rate
+     *  keep the order of the set. Rates and positions are packed in a {@code long} array
+     *  that is sorted as primitives
+     */
+    public void sort() {
+        long[] packed = new long[size];
+        for (int i = 0; i < size; i++) {
+            // ascending rate and descending position, read backwards
+            packed[i] = ((long) rates[i] << 32) | (~indexes[i] & 0xFFFFFFFFL);
+        }
+        Arrays.sort(packed);
+
+        for (int i = 0; i < size; i++) {
+            long p = packed[size - 1 - i];
+            rates[i] = (int) (p >> 32);
+            indexes[i] = ~(int) p;
+        }
+    }
+
+    /**
+     *  Get the results packed in {@code long} values, with the rate in the high 32 bits and
+     *  the position in the low 32 bits: sorting them as primitives sorts the results by rate
+     *
+     * @return
+     *  A new array with a {@code long} value for every result, in the order of the results
+     */
+    public long[] toPacked() {
+        long[] packed = new long[size];
+        for (int i = 0; i < size; i++) {
+            packed[i] = ((long) rates[i] << 32) | (indexes[i] & 0xFFFFFFFFL);
+        }
+        return packed;
+    }
+
+    /**
+     *  Passes every result to a {@code Visitor}, in the order of the results
+     *
+     * @param visitor
+     *  The {@code Visitor} that gets the results
+     */
+    public void forEach(Visitor visitor) {
+        for (int i = 0; i < size; i++) {
+            visitor.visit(indexes[i], rates[i]);
+        }
+    }
+
+    /**
+     *  Get a view of the results as {@code CompareInfo} objects, that are built when they are read.
+     *  The view can't be changed, and it sees the order given by {@link #sort()}
+     *
+     * @return
+     *  A list of {@link #size()} {@code CompareInfo} objects
+     */
+    public List<CompareInfo> asList() {
+        return new View();
+    }
+
+    private void checkIndex(int i) {
+        if(i < 0 || i >= size)
+            throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+    }
+
+    /**
+     *  Gets the results of a {@code CompareResults} one at a time
+     */
+    public interface Visitor {
+
+        /**
+         *  Gets a result
+         *
+         * @param index
+         *  The position of the element in the set
+         * @param rate
+         *  The compare rate of the element
+         */
+        void visit(int index, int rate);
+    }
+
+    private class View extends AbstractList<CompareInfo> implements RandomAccess {
+
+        @Override
+        public CompareInfo get(int i) {
+            return new CompareInfo(string(i), rates[i]);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
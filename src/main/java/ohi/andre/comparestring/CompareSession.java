@@ -0,0 +1,403 @@
+package ohi.andre.comparestring;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import ohi.andre.comparestring.Compare.CompareInfo;
+
+/**
+ *  A query on a {@link CompareIndex} that is typed one char at a time.
+ *  The state of the comparison of every element is kept between two changes of the query,
+ *  so appending a char costs one step for each element instead of comparing the whole query again.
+ *  The results are the same of the corresponding methods of {@link CompareIndex} with the current query.
+ *  <p>
+ *  The state of every length of the query is kept, so {@link #backspace()} only discards the last one,
+ *  and {@link #set(String)} updates the state from the first prepared char that changed.
+ *  <p>
+ *  The state takes memory for every length the query had, kept and reused until the session is discarded:
+ *  in linear mode a {@code float} and a {@code byte} for every element, in scrolling mode a {@code float}
+ *  and a {@code byte} for every prepared char of the index and a {@code float} for every element.
+ *  The chars are read from the index, they are not copied.
+ *  <p>
+ *  An instance is not thread safe
+ */
+public class CompareSession {
+
+    private static final char[] EMPTY = new char[0];
+
+    private final CompareIndex index;
+    private final boolean scrollCompare;
+    private final StringBuilder typed = new StringBuilder();
+    private final Preparer preparer = new Preparer();
+
+    private char[] query = new char[16];
+    private int queryLength;
+
+    /**
+     * Linear mode: for every length k of the prepared query, the points of every element (see
+     * Compare#linearSteps) and the state of the last step when the query is shorter than the element.
+     * The levels after the length of the query were used by a longer one, and are filled again when it grows back
+     */
+    private final List<float[]> levelSteps = new ArrayList<>();
+    private final List<byte[]> levelStates = new ArrayList<>();
+
+    /**
+     * Scrolling mode: for every length k of the prepared query, the points and the state of every window
+     * of the elements longer than k before the last step, at the offsets of the elements in the index,
+     * and for the others the best window found. The empty query has no state, and as in linear mode
+     * the levels after the length of the query are filled again when it grows back
+     */
+    private final List<float[]> windowSteps = new ArrayList<>();
+    private final List<byte[]> windowStates = new ArrayList<>();
+    private final List<float[]> best = new ArrayList<>();
+
+    /**
+     *  Construct a new instance of {@code CompareSession} with an empty query
+     *
+     * @param index
+     *  The prepared set of {@code String} objects
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     */
+    public CompareSession(CompareIndex index, boolean scrollCompare) {
+        this.index = index;
+        this.scrollCompare = scrollCompare;
+
+        if(scrollCompare) {
+            windowSteps.add(null);
+            windowStates.add(null);
+            best.add(null);
+        } else {
+            levelSteps.add(new float[index.size()]);
+            levelStates.add(new byte[index.size()]);
+        }
+    }
+
+    /**
+     *  Get the query typed so far
+     *
+     * @return
+     *  The {@code String} object used as comparison
+     */
+    public String query() {
+        return typed.toString();
+    }
+
+    /**
+     *  Appends a char to the query
+     *
+     * @param c
+     *  The typed char
+     */
+    public void append(char c) {
+        typed.append(c);
+        update();
+    }
+
+    /**
+     *  Removes the last char of the query, if there is one
+     */
+    public void backspace() {
+        if(typed.length() == 0)
+            return;
+
+        typed.setLength(typed.length() - 1);
+        update();
+    }
+
+    /**
+     *  Replaces the query. The state of the prefix shared with the previous query is kept
+     *
+     * @param string
+     *  The new {@code String} object used as comparison
+     */
+    public void set(String string) {
+        typed.setLength(0);
+        typed.append(string);
+        update();
+    }
+
+    /**
+     *  Returns the most similar element of the index, or null if the greatest rate is lower than {@code minRate}
+     *
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be returned
+     * @return
+     *  The most similar {@code String} object in the index, or null if nothing was found
+     * @see CompareIndex#similarString(String, int, boolean)
+     */
+    public String similarString(int minRate) {
+        if(typed.length() == 0 || index.size() == 0) {
+            return null;
+        }
+
+        int maxRate = Compare.LOWER_RATE, maxIndex = -1;
+        for (int count = 0; count < index.size(); count++) {
+            int rate = rate(count);
+
+            if (rate == Compare.GREATER_RATE) {
+                return index.get(count);
+            }
+
+            if (maxRate < rate) {
+                maxRate = rate;
+                maxIndex = count;
+            }
+        }
+
+        if (maxRate < minRate || maxIndex == -1) {
+            return null;
+        }
+
+        return index.get(maxIndex);
+    }
+
+    /**
+     *  Returns the most similar element of the index
+     *
+     * @return
+     *  The most similar {@code String} object in the index, or null if nothing was found
+     * @see CompareIndex#similarString(String, boolean)
+     */
+    public String similarString() {
+        return similarString(Compare.LOWER_RATE);
+    }
+
+    /**
+     *  Returns every element of the index with a rate equal or greater than {@code minRate}
+     *
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be considered similar
+     * @return
+     *  A list containing all of the similar {@code String} objects
+     * @see CompareIndex#similarStrings(String, int, boolean)
+     */
+    public List<String> similarStrings(int minRate) {
+        List<String> list = new ArrayList<>();
+        if(typed.length() == 0) {
+            return list;
+        }
+
+        for (int count = 0; count < index.size(); count++) {
+            if (rate(count) >= minRate)
+                list.add(index.get(count));
+        }
+        return list;
+    }
+
+    /**
+     *  Returns a compare rate for every element of the index (if the rate is equal or greater to {@code minRate}
+     *  This is not sorted!
+     *
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be considered similar
+     * @return
+     *  A list containing the {@code CompareInfo} objects
+     * @see CompareIndex#compareInfo(String, int, boolean)
+     */
+    public List<CompareInfo> compareInfo(int minRate) {
+        List<CompareInfo> infos = new ArrayList<>();
+        if(typed.length() == 0) {
+            return infos;
+        }
+
+        for (int count = 0; count < index.size(); count++) {
+            int result = rate(count);
+
+            if (minRate == -1 || result >= minRate)
+                infos.add(new CompareInfo(index.get(count), result));
+        }
+        return infos;
+    }
+
+    /**
+     *  Returns the {@code k} elements of the index with the greatest compare rate (if the rate is equal
+     *  or greater to {@code minRate}), sorted from the most similar
+     *
+     * @param k
+     *  The greatest number of {@code CompareInfo} objects to return
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be considered similar
+     * @return
+     *  A sorted list containing at most {@code k} {@code CompareInfo} objects
+     * @see CompareIndex#topK(String, int, int, boolean)
+     */
+    public List<CompareInfo> topK(int k, int minRate) {
+        if(typed.length() == 0 || index.size() == 0 || k <= 0) {
+            return new ArrayList<>();
+        }
+
+        RateHeap heap = new RateHeap(Math.min(k, index.size()));
+        for (int count = 0; count < index.size(); count++) {
+            int result = rate(count);
+
+            if (result >= minRate)
+                heap.offer(result, count);
+        }
+
+        long[] sorted = heap.toArray();
+        List<CompareInfo> infos = new ArrayList<>(sorted.length);
+        for (long f : sorted) {
+            infos.add(new CompareInfo(index.get((int) (f >>> 32)), (int) f));
+        }
+        return infos;
+    }
+
+    /**
+     *  Prepares the query again and updates the state from the first prepared char that changed
+     */
+    private void update() {
+        preparer.prepare(typed.toString());
+
+        int common = 0;
+        while (common < queryLength && common < preparer.length && query[common] == preparer.chars[common]) {
+            common++;
+        }
+
+        if(query.length < preparer.length)
+            query = new char[Math.max(preparer.length, query.length * 2)];
+        System.arraycopy(preparer.chars, 0, query, 0, preparer.length);
+
+        if(scrollCompare) {
+            for (int length = common; length < preparer.length; length++) {
+                scrollAppend(length);
+            }
+        } else {
+            for (int length = common; length < preparer.length; length++) {
+                linearAppend(length);
+            }
+        }
+        queryLength = preparer.length;
+    }
+
+    /**
+     *  Builds the state of the prepared query long {@code length + 1} from the one of the query long {@code length}
+     *
+     * @param length
+     *  The length of the query before the char at {@code length} was appended
+     */
+    private void linearAppend(int length) {
+        float[] steps = levelSteps.get(length);
+        byte[] states = levelStates.get(length);
+        if(levelSteps.size() == length + 1) {
+            levelSteps.add(new float[steps.length]);
+            levelStates.add(new byte[states.length]);
+        }
+        float[] nextSteps = levelSteps.get(length + 1);
+        byte[] nextStates = levelStates.get(length + 1);
+
+        char c = query[length];
+        for (int count = 0; count < steps.length; count++) {
+            int elementLength = index.length(count);
+
+            if(elementLength > length + 1) {
+                int state = index.step(count, states[count], c, length, length == 0, true);
+                nextSteps[count] = steps[count] + Compare.stepPoints(state);
+                nextStates[count] = (byte) state;
+            } else if(elementLength >= length) {
+                nextSteps[count] = index.linearSteps(query, 0, length + 1, count);
+            } else {
+                nextSteps[count] = steps[count];
+            }
+        }
+    }
+
+    /**
+     *  Builds the state of scrolling mode of the prepared query long {@code length + 1}
+     *  from the one of the query long {@code length}
+     *
+     * @param length
+     *  The length of the query before the char at {@code length} was appended
+     */
+    private void scrollAppend(int length) {
+        if(windowSteps.size() == length + 1) {
+            int chars = index.offset(index.size());
+            windowSteps.add(new float[chars]);
+            windowStates.add(new byte[chars]);
+            best.add(new float[index.size()]);
+        }
+        float[] steps = windowSteps.get(length), nextSteps = windowSteps.get(length + 1);
+        byte[] states = windowStates.get(length), nextStates = windowStates.get(length + 1);
+        float[] previousBest = best.get(length), nextBest = best.get(length + 1);
+
+        for (int count = 0; count < index.size(); count++) {
+            int elementLength = index.length(count), offset = index.offset(count);
+
+            if(elementLength > length + 1) {
+                if(length == 0) {
+                    for (int window = offset; window < offset + elementLength; window++) {
+                        nextSteps[window] = 0;
+                        nextStates[window] = 0;
+                    }
+                    continue;
+                }
+
+                char c = query[length - 1];
+                for (int window = 0; window < elementLength - length; window++) {
+                    int at = offset + window;
+                    int state = index.step(count, states[at], c, window + length - 1, length == 1, true);
+                    nextSteps[at] = steps[at] + Compare.stepPoints(state);
+                    nextStates[at] = (byte) state;
+                }
+            } else if(elementLength == 0) {
+                // the first window over an empty element gets no points, the next ones only lose the penalty
+                nextBest[count] = 0;
+            } else {
+                float n = elementLength > length ? Compare.LOWER_RATE : previousBest[count];
+
+                int window = length + 1 - elementLength;
+                float x = index.linearSteps(query, window, elementLength, count);
+                x -= Compare.scrollPenalty(window);
+
+                nextBest[count] = x > n ? x : n;
+            }
+        }
+    }
+
+    /**
+     *  Gives the compare rate of an element to the current query
+     *
+     * @param index
+     *  The position of the element in the index
+     * @return
+     *  The compare rate of the element
+     */
+    private int rate(int index) {
+        String current = this.index.get(index);
+        if(current == null || current.length() == 0)
+            return 0;
+
+        if(queryLength == 0)
+            return this.index.rate(index, EMPTY, scrollCompare);
+
+        int elementLength = this.index.length(index);
+        if(!scrollCompare) {
+            float steps = levelSteps.get(queryLength)[index];
+            return elementLength > queryLength ? Compare.linearRate(steps, elementLength, queryLength) :
+                    Compare.linearRate(steps, queryLength, elementLength);
+        }
+
+        if(elementLength <= queryLength)
+            return (int) this.best.get(queryLength)[index];
+
+        float[] windowSteps = this.windowSteps.get(queryLength);
+        byte[] windowStates = this.windowStates.get(queryLength);
+        int offset = this.index.offset(index);
+        char c = query[queryLength - 1];
+        float best = queryLength * Compare.COMPARE_BASE_VALUE;
+        float n = Compare.LOWER_RATE;
+        for (int window = 0; window < elementLength - queryLength + 1; window++) {
+            if(best - Compare.scrollPenalty(window) <= n)
+                break;
+
+            int at = offset + window;
+            int state = this.index.step(index, windowStates[at], c, window + queryLength - 1, queryLength == 1, false);
+            float x = windowSteps[at] + Compare.stepPoints(state);
+            x -= Compare.scrollPenalty(window);
+
+            if(x > n)
+                n = x;
+        }
+        return (int) n;
+    }
+}
@@ -0,0 +1,393 @@
+package ohi.andre.comparestring;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import ohi.andre.comparestring.Compare.CompareInfo;
+
+/**
+ *  Compares {@code String} objects with the weights and the preparation of a {@link CompareProfile}.
+ *  The methods work as the static methods of {@link Compare} with the same name, that use {@link CompareProfile#DEFAULT}.
+ *  <p>
+ *  An instance with the default values uses the kernels of {@link Compare} where the weights are constants,
+ *  any other instance uses the same kernels with the weights of the profile, read once per comparison,
+ *  and both share the {@link Preparer} objects of the thread with {@link Compare}.
+ *  A profile that does not fold accents skips the accent table entirely, which is enough for ASCII-only sets.
+ *  <p>
+ *  An instance is immutable and thread safe
+ */
+public final class Comparer {
+
+    private final CompareProfile profile;
+    private final boolean defaults;
+    private final int flags;
+    private final int greaterRate;
+    private final int lowerRate;
+
+    /**
+     *  Construct a new instance of {@code Comparer} with {@link CompareProfile#DEFAULT}
+     */
+    public Comparer() {
+        this(CompareProfile.DEFAULT);
+    }
+
+    /**
+     *  Construct a new instance of {@code Comparer}
+     *
+     * @param profile
+     *  The weights and the preparation to use
+     */
+    public Comparer(CompareProfile profile) {
+        this.profile = profile;
+        this.defaults = profile.isDefault();
+        this.flags = profile.preparerFlags();
+        this.greaterRate = profile.greaterRate();
+        this.lowerRate = profile.lowerRate();
+    }
+
+    /**
+     *  Get the profile of this instance
+     *
+     * @return
+     *  The {@code CompareProfile} used to compare
+     */
+    public CompareProfile profile() {
+        return profile;
+    }
+
+    /**
+     *  Compare the {@code String} parameter to every element of the {@code String} Array, and
+     *  returns the most similar {@code String}, or null if the greatest rate is lower
+     *  than {@code minRate}
+     *
+     * @param strings
+     *  The set of {@code String} objects
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be returned
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  The most similar {@code String} object in the {@code String} set, or null if nothing was found
+     * @see Compare#similarString(String[], String, int, boolean)
+     */
+    public String similarString(String[] strings, String string, int minRate, boolean scrollCompare) {
+        if(string == null || strings == null || strings.length == 0 || string.length() == 0) {
+            return null;
+        }
+
+        char[] query = prepare(string);
+        int maxRate = lowerRate, maxIndex = -1;
+        for (int count = 0; count < strings.length; count++) {
+            int rate = rate(strings[count], query, scrollCompare);
+
+            if (rate == greaterRate) {
+                return strings[count];
+            }
+
+            if (maxRate < rate) {
+                maxRate = rate;
+                maxIndex = count;
+            }
+        }
+
+        if (maxRate < minRate || maxIndex == -1) {
+            return null;
+        }
+
+        return strings[maxIndex];
+    }
+
+    /**
+     *  Compare the {@code String} parameter to every element of the {@code String} Collection, and
+     *  returns the most similar {@code String}, or null if the greatest rate is lower
+     *  than {@code minRate}
+     *
+     * @param strings
+     *  The set of {@code String} objects
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be returned
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  The most similar {@code String} object in the {@code String} set, or null if nothing was found
+     * @see Compare#similarString(Collection, String, int, boolean)
+     */
+    public String similarString(Collection<String> strings, String string, int minRate, boolean scrollCompare) {
+        return similarString(strings.toArray(new String[strings.size()]), string, minRate, scrollCompare);
+    }
+
+    /**
+     *  Compare the {@code String} parameter to every element of the {@code String} Array, and
+     *  returns the most similar {@code String}
+     *
+     * @param strings
+     *  The set of {@code String} objects
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  The most similar {@code String} object in the {@code String} set, or null if nothing was found
+     */
+    public String similarString(String[] strings, String string, boolean scrollCompare) {
+        return similarString(strings, string, lowerRate, scrollCompare);
+    }
+
+    /**
+     *  Returns every {@code String} object in the {@code String} Array with a rate equal or greater than {@code minRate}
+     *
+     * @param strings
+     *  The set of {@code String} objects
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be considered similar
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  A list containing all of the similar {@code String} objects
+     * @see Compare#similarStrings(String[], String, int, boolean)
+     */
+    public List<String> similarStrings(String[] strings, String string, int minRate, boolean scrollCompare) {
+        List<String> list = new ArrayList<>();
+        if(strings == null || string == null || strings.length == 0 || string.length() == 0) {
+            return list;
+        }
+
+        char[] query = prepare(string);
+        for (String current : strings) {
+            if (rate(current, query, scrollCompare) >= minRate)
+                list.add(current);
+        }
+        return list;
+    }
+
+    /**
+     *  Returns every {@code String} object in the {@code String} Collection with a rate equal or greater than {@code minRate}
+     *
+     * @param strings
+     *  The set of {@code String} objects
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be considered similar
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  A list containing all of the similar {@code String} objects
+     * @see Compare#similarStrings(Collection, String, int, boolean)
+     */
+    public List<String> similarStrings(Collection<String> strings, String string, int minRate, boolean scrollCompare) {
+        return similarStrings(strings.toArray(new String[strings.size()]), string, minRate, scrollCompare);
+    }
+
+    /**
+     *  Returns a compare rate for every {@code String} object in the {@code String} Array (if the rate
+     *  is equal or greater to {@code minRate}
+     *  This is not sorted!
+     *
+     * @param strings
+     *  The set of {@code String} objects
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be considered similar
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  A list containing the {@code CompareInfo} objects
+     * @see Compare#compareInfo(String[], String, int, boolean)
+     */
+    public List<CompareInfo> compareInfo(String[] strings, String string, int minRate, boolean scrollCompare) {
+        List<CompareInfo> infos = new ArrayList<>();
+        if(strings == null || string == null || strings.length == 0 || string.length() == 0) {
+            return infos;
+        }
+
+        char[] query = prepare(string);
+        for (String current : strings) {
+            int result = rate(current, query, scrollCompare);
+
+            if (minRate == -1 || result >= minRate)
+                infos.add(new CompareInfo(current, result));
+        }
+        return infos;
+    }
+
+    /**
+     *  Returns a compare rate for every {@code String} object in the {@code String} Collection (if the rate
+     *  is equal or greater to {@code minRate}
+     *  This is not sorted!
+     *
+     * @param strings
+     *  The set of {@code String} objects
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be considered similar
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  A list containing the {@code CompareInfo} objects
+     * @see Compare#compareInfo(Collection, String, int, boolean)
+     */
+    public List<CompareInfo> compareInfo(Collection<String> strings, String string, int minRate, boolean scrollCompare) {
+        return compareInfo(strings.toArray(new String[strings.size()]), string, minRate, scrollCompare);
+    }
+
+    /**
+     *  Returns a compare rate for every {@code String} object in the {@code String} Array
+     *  This is not sorted!
+     *
+     * @param strings
+     *  The set of {@code String} objects
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  A list containing the rates for every {@code String} object in the {@code String} set
+     */
+    public List<CompareInfo> compareInfo(String[] strings, String string, boolean scrollCompare) {
+        return compareInfo(strings, string, lowerRate, scrollCompare);
+    }
+
+    /**
+     *  Returns the {@code k} {@code String} objects in the {@code String} Array with the greatest
+     *  compare rate (if the rate is equal or greater to {@code minRate}), sorted from the most similar.
+     *  Elements with the same rate keep the order of the Array
+     *
+     * @param strings
+     *  The set of {@code String} objects
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param k
+     *  The greatest number of {@code CompareInfo} objects to return
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be considered similar
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  A sorted list containing at most {@code k} {@code CompareInfo} objects
+     * @see Compare#topK(String[], String, int, int, boolean)
+     */
+    public List<CompareInfo> topK(String[] strings, String string, int k, int minRate, boolean scrollCompare) {
+        if(strings == null || string == null || strings.length == 0 || string.length() == 0 || k <= 0) {
+            return new ArrayList<>();
+        }
+
+        char[] query = prepare(string);
+        RateHeap heap = new RateHeap(Math.min(k, strings.length));
+        for (int count = 0; count < strings.length; count++) {
+            int result = rate(strings[count], query, scrollCompare);
+
+            if (result >= minRate)
+                heap.offer(result, count);
+        }
+        return heap.toCompareInfo(strings);
+    }
+
+    /**
+     *  Returns the {@code k} {@code String} objects in the {@code String} Collection with the greatest
+     *  compare rate (if the rate is equal or greater to {@code minRate}), sorted from the most similar.
+     *  Elements with the same rate keep the order of the Collection
+     *
+     * @param strings
+     *  The set of {@code String} objects
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param k
+     *  The greatest number of {@code CompareInfo} objects to return
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be considered similar
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  A sorted list containing at most {@code k} {@code CompareInfo} objects
+     */
+    public List<CompareInfo> topK(Collection<String> strings, String string, int k, int minRate, boolean scrollCompare) {
+        return topK(strings.toArray(new String[strings.size()]), string, k, minRate, scrollCompare);
+    }
+
+    /**
+     *  Prepares and compares to {@code String} object in linear mode
+     *
+     * @param string1
+     *  The first {@code String} object to be compared
+     * @param string2
+     *  The second {@code String} object to be compared
+     * @return
+     *  The compare rate of the two {@code String} objects
+     */
+    public int linearComparison(String string1, String string2) {
+        return comparison(string1, string2, false);
+    }
+
+    /**
+     *  Prepares and compares to {@code String} object in scrolling mode
+     *
+     * @param string1
+     *  The first {@code String} object to be compared
+     * @param string2
+     *  The second {@code String} object to be compared
+     * @return
+     *  The compare rate of the two {@code String} objects
+     */
+    public int scrollComparison(String string1, String string2) {
+        return comparison(string1, string2, true);
+    }
+
+    /**
+     *  Adjust a {@code String} object to be compared, as chosen by the profile
+     *
+     * @param s
+     * @return
+     *  The {@code String} object that is compared in place of {@code s}
+     */
+    public String prepareToCompare(String s) {
+        Preparer prepared = Compare.PREPARERS.get()[0].prepare(s, flags);
+        return new String(prepared.chars, 0, prepared.length);
+    }
+
+    private int comparison(String string1, String string2, boolean scrollCompare) {
+        if(string1 == null || string2 == null || string1.length() == 0 || string2.length() == 0)
+            return 0;
+
+        Preparer[] preparers = Compare.PREPARERS.get();
+        Preparer prepared1 = preparers[0].prepare(string1, flags);
+        Preparer prepared2 = preparers[1].prepare(string2, flags);
+        return rate(prepared1.chars, prepared1.length, prepared2.chars, prepared2.length, scrollCompare);
+    }
+
+    private char[] prepare(String string) {
+        Preparer prepared = Compare.PREPARERS.get()[1].prepare(string, flags);
+        return Arrays.copyOf(prepared.chars, prepared.length);
+    }
+
+    /**
+     *  Prepares and compares a {@code String} object to a prepared query
+     */
+    private int rate(String current, char[] query, boolean scrollCompare) {
+        if(current == null || current.length() == 0)
+            return 0;
+
+        Preparer prepared = Compare.PREPARERS.get()[0].prepare(current, flags);
+        return rate(prepared.chars, prepared.length, query, query.length, scrollCompare);
+    }
+
+    private int rate(char[] chars1, int length1, char[] chars2, int length2, boolean scrollCompare) {
+        if(defaults) {
+            return scrollCompare ? Compare.scrollRate(chars1, 0, length1, chars2, 0, length2) :
+                    Compare.linearRate(chars1, 0, length1, chars2, 0, length2);
+        }
+
+        return scrollCompare ? Compare.scrollRate(profile, chars1, 0, length1, chars2, 0, length2) :
+                Compare.linearRate(profile, chars1, 0, length1, chars2, 0, length2);
+    }
+}
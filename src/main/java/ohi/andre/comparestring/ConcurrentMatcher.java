@@ -0,0 +1,550 @@
+package ohi.andre.comparestring;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import ohi.andre.comparestring.Compare.CompareInfo;
+
+/**
+ *  A set of {@code String} objects that can be changed while it is queried by many threads.
+ *  The set is held as an immutable list of segments, every one a {@link CompareIndex} of some consecutive
+ *  elements, and the list is swapped atomically by every change: a query never blocks, and it sees the
+ *  whole set as it was when the query started.
+ *  <p>
+ *  A change builds new segments only for the elements it touches. The added elements go to a new segment
+ *  at the end, that is merged with the one before while it is not much smaller, so there are few segments
+ *  and an element is copied to a new segment only a few times. A removal builds again the segments of the
+ *  removed elements. Only the added elements are prepared, the others keep their prepared form.
+ *  Concurrent changes are retried until they are applied to the latest set, none of them is lost.
+ *  <p>
+ *  Every query method gives the same result of the corresponding method in {@link Compare}
+ *  applied to the elements of {@link #snapshot()}, in the order they were added
+ */
+public class ConcurrentMatcher {
+
+    private static final Snapshot EMPTY = new Snapshot(new Segment[0]);
+
+    private final AtomicReference<Snapshot> snapshot;
+
+    /**
+     *  Construct a new instance of {@code ConcurrentMatcher} with an empty set
+     */
+    public ConcurrentMatcher() {
+        this(new String[0]);
+    }
+
+    /**
+     *  Construct a new instance of {@code ConcurrentMatcher}
+     *
+     * @param strings
+     *  The set of {@code String} objects. The array is copied, later changes are not seen by the matcher
+     */
+    public ConcurrentMatcher(String[] strings) {
+        String[] copy = strings.clone();
+        this.snapshot = new AtomicReference<>(EMPTY.append(new Segment(copy, CompareIndex.prepare(copy))));
+    }
+
+    /**
+     *  Construct a new instance of {@code ConcurrentMatcher}
+     *
+     * @param strings
+     *  The set of {@code String} objects
+     */
+    public ConcurrentMatcher(Collection<String> strings) {
+        this(strings.toArray(new String[strings.size()]));
+    }
+
+    /**
+     *  Get the current set. The returned index never changes, so it can be used for
+     *  many queries that have to see the same elements.
+     *  When the set is made of more segments they are copied to a single index, once for every change of the set
+     *
+     * @return
+     *  The {@code CompareIndex} of the current elements
+     */
+    public CompareIndex snapshot() {
+        return snapshot.get().index();
+    }
+
+    /**
+     *  Get the number of {@code String} objects in the set
+     *
+     * @return
+     *  The size of the current set
+     */
+    public int size() {
+        return snapshot.get().size();
+    }
+
+    /**
+     *  Adds an element to the set
+     *
+     * @param string
+     *  The {@code String} object to add
+     */
+    public void add(String string) {
+        addAll(new String[] {string});
+    }
+
+    /**
+     *  Adds some elements to the set, as a single change
+     *
+     * @param strings
+     *  The {@code String} objects to add
+     */
+    public void addAll(String[] strings) {
+        String[] added = strings.clone();
+        Segment segment = new Segment(added, CompareIndex.prepare(added));
+
+        Snapshot current, next;
+        do {
+            current = snapshot.get();
+            next = current.append(segment);
+        } while (!snapshot.compareAndSet(current, next));
+    }
+
+    /**
+     *  Adds some elements to the set, as a single change
+     *
+     * @param strings
+     *  The {@code String} objects to add
+     */
+    public void addAll(Collection<String> strings) {
+        addAll(strings.toArray(new String[strings.size()]));
+    }
+
+    /**
+     *  Removes every element equal to a {@code String} object. The other elements keep their order
+     *
+     * @param string
+     *  The {@code String} object to remove, it can be null
+     * @return
+     *  True if the set changed
+     */
+    public boolean remove(String string) {
+        Snapshot current, next;
+        do {
+            current = snapshot.get();
+            next = current.remove(string);
+            if(next == current)
+                return false;
+        } while (!snapshot.compareAndSet(current, next));
+        return true;
+    }
+
+    /**
+     *  Replaces the whole set. The prepared forms of the elements that were already
+     *  in the set are kept, only the new ones are prepared
+     *
+     * @param strings
+     *  The new set of {@code String} objects. The array is copied, later changes are not seen by the matcher
+     */
+    public void replaceAll(String[] strings) {
+        String[] nextStrings = strings.clone();
+
+        Map<String, String> known = new HashMap<>();
+        for (Segment segment : snapshot.get().segments) {
+            for (int count = 0; count < segment.strings.length; count++) {
+                if(segment.prepared[count] != null)
+                    known.put(segment.strings[count], segment.prepared[count]);
+            }
+        }
+
+        String[] nextPrepared = new String[nextStrings.length];
+        for (int count = 0; count < nextStrings.length; count++) {
+            String prepared = known.get(nextStrings[count]);
+            nextPrepared[count] = prepared != null ? prepared : CompareIndex.prepare(nextStrings[count]);
+        }
+
+        snapshot.set(EMPTY.append(new Segment(nextStrings, nextPrepared)));
+    }
+
+    /**
+     *  Replaces the whole set. The prepared forms of the elements that were already
+     *  in the set are kept, only the new ones are prepared
+     *
+     * @param strings
+     *  The new set of {@code String} objects
+     */
+    public void replaceAll(Collection<String> strings) {
+        replaceAll(strings.toArray(new String[strings.size()]));
+    }
+
+    /**
+     *  Compare the {@code String} parameter to every element of the current set, and
+     *  returns the most similar {@code String}, or null if the greatest rate is lower
+     *  than {@code minRate}
+     *
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be returned
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  The most similar {@code String} object in the set, or null if nothing was found
+     * @see Compare#similarString(String[], String, int, boolean)
+     */
+    public String similarString(String string, int minRate, boolean scrollCompare) {
+        Snapshot current = snapshot.get();
+        if(string == null || current.size() == 0 || string.length() == 0) {
+            return null;
+        }
+
+        CompareMetrics metrics = Compare.metrics();
+        long start = metrics != null ? System.nanoTime() : 0L;
+
+        char[] query = Compare.prepareToCompare(string).toCharArray();
+        String found = current.similarString(query, minRate, scrollCompare);
+
+        if(metrics != null)
+            metrics.query(System.nanoTime() - start, found == null ? 0 : 1);
+        return found;
+    }
+
+    /**
+     *  Compare the {@code String} parameter to every element of the current set, and
+     *  returns the most similar {@code String}
+     *
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  The most similar {@code String} object in the set, or null if nothing was found
+     * @see Compare#similarString(String[], String, boolean)
+     */
+    public String similarString(String string, boolean scrollCompare) {
+        return similarString(string, Compare.LOWER_RATE, scrollCompare);
+    }
+
+    /**
+     *  Compare the {@code String} parameter with every element of the current set, and
+     *  returns every similar {@code String} object with a rate greater than {@code minRate}
+     *
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be considered similar
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  A list containing all of the similar {@code String} objects
+     * @see Compare#similarStrings(String[], String, int, boolean)
+     */
+    public List<String> similarStrings(String string, int minRate, boolean scrollCompare) {
+        List<String> list = new ArrayList<>();
+        for (CompareInfo info : find(string, minRate, false, scrollCompare)) {
+            list.add(info.s);
+        }
+        return list;
+    }
+
+    /**
+     *  Returns a compare rate for every {@code String} object in the current set (if the rate
+     *  is equal or greater to {@code minRate}
+     *  This is not sorted!
+     *
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be considered similar
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  A list containing the {@code CompareInfo} objects
+     * @see Compare#compareInfo(String[], String, int, boolean)
+     */
+    public List<CompareInfo> compareInfo(String string, int minRate, boolean scrollCompare) {
+        return find(string, minRate, minRate == -1, scrollCompare);
+    }
+
+    /**
+     *  Returns a compare rate for every {@code String} object in the current set
+     *  This is not sorted!
+     *
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  A list containing the rates for every {@code String} object in the set
+     * @see Compare#compareInfo(String[], String, boolean)
+     */
+    public List<CompareInfo> compareInfo(String string, boolean scrollCompare) {
+        return compareInfo(string, Compare.LOWER_RATE, scrollCompare);
+    }
+
+    /**
+     *  Returns the {@code k} {@code String} objects in the current set with the greatest compare rate
+     *  (if the rate is equal or greater to {@code minRate}), sorted from the most similar
+     *
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param k
+     *  The greatest number of {@code CompareInfo} objects to return
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be considered similar
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  A sorted list containing at most {@code k} {@code CompareInfo} objects
+     * @see Compare#topK(String[], String, int, int, boolean)
+     */
+    public List<CompareInfo> topK(String string, int k, int minRate, boolean scrollCompare) {
+        Snapshot current = snapshot.get();
+        if(string == null || current.size() == 0 || string.length() == 0 || k <= 0) {
+            return new ArrayList<>();
+        }
+
+        CompareMetrics metrics = Compare.metrics();
+        long start = metrics != null ? System.nanoTime() : 0L;
+
+        char[] query = Compare.prepareToCompare(string).toCharArray();
+        RateHeap heap = new RateHeap(Math.min(k, current.size()));
+        for (int s = 0; s < current.segments.length; s++) {
+            for (long f : current.segments[s].index.topK(query, k, minRate, scrollCompare)) {
+                heap.offer((int) f, current.starts[s] + (int) (f >>> 32));
+            }
+        }
+
+        long[] found = heap.toArray();
+        if(metrics != null)
+            metrics.query(System.nanoTime() - start, found.length);
+        return new ArrayList<>(new CompareResults(current::get, found).asList());
+    }
+
+    /**
+     *  Finds the elements of the current set with a compare rate equal or greater to {@code minRate}
+     *
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param minRate
+     *  The lowest compare rate that an element has to get
+     * @param everyRate
+     *  Find every element, whatever its rate
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  A list containing the {@code CompareInfo} objects of the elements found, in the order of the set
+     */
+    private List<CompareInfo> find(String string, int minRate, boolean everyRate, boolean scrollCompare) {
+        Snapshot current = snapshot.get();
+        List<CompareInfo> infos = new ArrayList<>();
+        if(string == null || current.size() == 0 || string.length() == 0) {
+            return infos;
+        }
+
+        CompareMetrics metrics = Compare.metrics();
+        long start = metrics != null ? System.nanoTime() : 0L;
+
+        char[] query = Compare.prepareToCompare(string).toCharArray();
+        for (Segment segment : current.segments) {
+            long[] found = everyRate ? segment.index.rateAll(query, scrollCompare) :
+                    segment.index.collect(query, minRate, scrollCompare);
+            for (long f : found) {
+                infos.add(new CompareInfo(segment.strings[(int) (f >>> 32)], (int) f));
+            }
+        }
+
+        if(metrics != null)
+            metrics.query(System.nanoTime() - start, infos.size());
+        return infos;
+    }
+
+    /**
+     *  Some consecutive elements of the set, with their prepared forms and their index
+     */
+    private static final class Segment {
+
+        final String[] strings;
+        final String[] prepared;
+        final CompareIndex index;
+
+        Segment(String[] strings, String[] prepared) {
+            this.strings = strings;
+            this.prepared = prepared;
+            this.index = new CompareIndex(strings, prepared);
+        }
+
+        /**
+         *  Builds the segment of the elements of two consecutive segments
+         *
+         * @param first
+         *  The segment before
+         * @param second
+         *  The segment after
+         * @return
+         *  The elements of {@code first} followed by the ones of {@code second}
+         */
+        static Segment merge(Segment first, Segment second) {
+            int size = first.strings.length;
+            String[] strings = Arrays.copyOf(first.strings, size + second.strings.length);
+            String[] prepared = Arrays.copyOf(first.prepared, size + second.strings.length);
+            System.arraycopy(second.strings, 0, strings, size, second.strings.length);
+            System.arraycopy(second.prepared, 0, prepared, size, second.strings.length);
+            return new Segment(strings, prepared);
+        }
+
+        /**
+         *  Builds the segment without the elements equal to a {@code String} object
+         *
+         * @param string
+         *  The {@code String} object to remove, it can be null
+         * @return
+         *  This segment if it has no such element, or a segment with the other elements that can be empty
+         */
+        Segment remove(String string) {
+            String[] nextStrings = new String[strings.length];
+            String[] nextPrepared = new String[strings.length];
+            int nextSize = 0;
+            for (int count = 0; count < strings.length; count++) {
+                String element = strings[count];
+                if(string == null ? element == null : string.equals(element))
+                    continue;
+
+                nextStrings[nextSize] = element;
+                nextPrepared[nextSize] = prepared[count];
+                nextSize++;
+            }
+
+            if(nextSize == strings.length)
+                return this;
+            return new Segment(Arrays.copyOf(nextStrings, nextSize), Arrays.copyOf(nextPrepared, nextSize));
+        }
+    }
+
+    /**
+     *  An immutable state of the set: its segments and the position of the first element of every segment
+     */
+    private static final class Snapshot {
+
+        final Segment[] segments;
+        final int[] starts;
+
+        /**
+         * The index of the whole set, built by the first call of index() when there is more than a segment
+         */
+        private volatile CompareIndex index;
+
+        Snapshot(Segment[] segments) {
+            this.segments = segments;
+            this.starts = new int[segments.length + 1];
+            for (int s = 0; s < segments.length; s++) {
+                starts[s + 1] = starts[s] + segments[s].strings.length;
+            }
+            if(segments.length == 1)
+                this.index = segments[0].index;
+        }
+
+        int size() {
+            return starts[segments.length];
+        }
+
+        String get(int index) {
+            int s = Arrays.binarySearch(starts, index);
+            // the empty segments are never kept, so a start is the start of a single segment
+            if(s < 0)
+                s = -s - 2;
+            return segments[s].strings[index - starts[s]];
+        }
+
+        CompareIndex index() {
+            CompareIndex index = this.index;
+            if(index == null) {
+                String[] strings = new String[size()];
+                String[] prepared = new String[size()];
+                for (int s = 0; s < segments.length; s++) {
+                    System.arraycopy(segments[s].strings, 0, strings, starts[s], segments[s].strings.length);
+                    System.arraycopy(segments[s].prepared, 0, prepared, starts[s], segments[s].strings.length);
+                }
+                index = new CompareIndex(strings, prepared);
+                this.index = index;
+            }
+            return index;
+        }
+
+        /**
+         *  Builds the state with some elements added at the end. The last segments are merged
+         *  while the one before is less than twice as long, so the segments get shorter from the first
+         *  to the last one and there are at most log2 of the size of them
+         *
+         * @param added
+         *  The segment of the added elements
+         * @return
+         *  The new state
+         */
+        Snapshot append(Segment added) {
+            if(added.strings.length == 0)
+                return this;
+
+            Segment[] next = Arrays.copyOf(segments, segments.length + 1);
+            int last = segments.length;
+            next[last] = added;
+            while (last > 0 && next[last - 1].strings.length < 2 * next[last].strings.length) {
+                next[last - 1] = Segment.merge(next[last - 1], next[last]);
+                last--;
+            }
+            return new Snapshot(Arrays.copyOf(next, last + 1));
+        }
+
+        /**
+         *  Builds the state without the elements equal to a {@code String} object
+         *
+         * @param string
+         *  The {@code String} object to remove, it can be null
+         * @return
+         *  This state if it has no such element, or the new state
+         */
+        Snapshot remove(String string) {
+            Segment[] next = new Segment[segments.length];
+            int nextCount = 0;
+            boolean changed = false;
+            for (Segment segment : segments) {
+                Segment nextSegment = segment.remove(string);
+                changed |= nextSegment != segment;
+                if(nextSegment.strings.length > 0)
+                    next[nextCount++] = nextSegment;
+            }
+            return changed ? new Snapshot(Arrays.copyOf(next, nextCount)) : this;
+        }
+
+        /**
+         *  Finds the most similar element. The segments are searched in order, and every one only for
+         *  an element better than the ones found before it and not worse than {@code minRate},
+         *  so that the first element with the greatest rate wins
+         *
+         * @param query
+         *  The prepared {@code String} object used as comparison
+         * @param minRate
+         *  The lowest compare rate that an element has to get to be returned
+         * @param scrollCompare
+         *  Use scrolling compare mode
+         * @return
+         *  The most similar element, or null if nothing was found
+         */
+        String similarString(char[] query, int minRate, boolean scrollCompare) {
+            int maxRate = Compare.LOWER_RATE;
+            String found = null;
+            for (Segment segment : segments) {
+                int index = segment.index.similarIndex(query, Math.max(minRate, maxRate + 1), scrollCompare);
+                if(index == -1)
+                    continue;
+
+                int rate = segment.index.rate(index, query, scrollCompare);
+                if(rate == Compare.GREATER_RATE)
+                    return segment.strings[index];
+
+                maxRate = rate;
+                found = segment.strings[index];
+            }
+
+            return maxRate < minRate ? null : found;
+        }
+    }
+}
@@ -0,0 +1,388 @@
+package ohi.andre.comparestring;
+
+import java.util.Arrays;
+
+/**
+ *  The searches shared by the sets of prepared {@code String} objects, whatever the storage of their chars.
+ *  The elements are grouped by the length of their prepared form, and a mask of their chars is kept
+ *  (see {@link Compare#rateBound(int, long, int, long, boolean)}): searches skip the groups and the
+ *  elements that can't get a rate good enough to change the result, without reading their chars.
+ *  Null and empty elements are kept apart, their rate is always 0
+ */
+abstract class GroupedIndex {
+
+    /**
+     *  Get the number of elements
+     *
+     * @return
+     *  The number of elements
+     */
+    abstract int size();
+
+    /**
+     *  Get the length of the prepared form of an element
+     *
+     * @param index
+     *  The position of the element
+     * @return
+     *  The number of prepared chars of the element
+     */
+    abstract int length(int index);
+
+    /**
+     *  Get the mask of the prepared chars of an element, see {@link Compare#charMask(char[], int, int)}
+     *
+     * @param index
+     *  The position of the element, it must not be empty
+     * @return
+     *  The mask of the element
+     */
+    abstract long mask(int index);
+
+    /**
+     *  Gives the compare rate of an element
+     *
+     * @param index
+     *  The position of the element
+     * @param query
+     *  The prepared {@code String} object used as comparison
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  The same compare rate that {@link Compare} gives to the element
+     */
+    abstract int rate(int index, char[] query, boolean scrollCompare);
+
+    /**
+     *  Get the number of null or empty elements
+     *
+     * @return
+     *  The number of null or empty elements
+     */
+    abstract int emptyCount();
+
+    /**
+     *  Get the position of a null or empty element
+     *
+     * @param e
+     *  From 0 to {@link #emptyCount()}
+     * @return
+     *  The position of the element, in increasing order
+     */
+    abstract int empty(int e);
+
+    /**
+     *  Get the number of groups of elements with the same prepared length
+     *
+     * @return
+     *  The number of groups
+     */
+    abstract int groupCount();
+
+    /**
+     *  Get the prepared length of the elements of a group
+     *
+     * @param group
+     *  From 0 to {@link #groupCount()}, groups are sorted by length
+     * @return
+     *  The length of the elements of the group
+     */
+    abstract int groupLength(int group);
+
+    /**
+     *  Get where a group starts in {@link #groupIndex(int)}
+     *
+     * @param group
+     *  From 0 to {@link #groupCount()}: the group {@code groupCount()} is the end of the last one
+     * @return
+     *  The first position of the group
+     */
+    abstract int groupStart(int group);
+
+    /**
+     *  Get the position of an element of a group
+     *
+     * @param g
+     *  From {@code groupStart(group)} to {@code groupStart(group + 1)}
+     * @return
+     *  The position of the element, in increasing order inside a group
+     */
+    abstract int groupIndex(int g);
+
+    /**
+     *  Finds the position of the most similar element
+     *
+     * @param query
+     *  The prepared {@code String} object used as comparison
+     * @param minRate
+     *  The lowest compare rate that an element has to get to be returned
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  The position of the most similar element, or -1 if nothing was found
+     */
+    int similarIndex(char[] query, int minRate, boolean scrollCompare) {
+        return similarIndex(query, minRate, scrollCompare, Compare.LOWER_RATE, -1);
+    }
+
+    /**
+     *  Finds the position of the most similar element, starting from the rate of an element that was
+     *  already compared. A good starting rate lets the search skip more elements
+     *
+     * @param query
+     *  The prepared {@code String} object used as comparison
+     * @param minRate
+     *  The lowest compare rate that an element has to get to be returned
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @param seedRate
+     *  The compare rate of the element already compared
+     * @param seedIndex
+     *  The position of the element already compared, or -1 if there is none
+     * @return
+     *  The position of the most similar element, or -1 if nothing was found
+     */
+    int similarIndex(char[] query, int minRate, boolean scrollCompare, int seedRate, int seedIndex) {
+        long queryMask = Compare.charMask(query, 0, query.length);
+
+        // the sequential scan returns the first element with GREATER_RATE, or else the first one with
+        // the greatest rate: groups are visited from the best bound, so both are tracked by position
+        int greaterIndex = Integer.MAX_VALUE;
+        int maxRate = Compare.LOWER_RATE, maxIndex = -1;
+        if(emptyCount() > 0 && maxRate < 0) {
+            maxRate = 0;
+            maxIndex = empty(0);
+        }
+
+        if(seedIndex != -1) {
+            if(seedRate == Compare.GREATER_RATE) {
+                greaterIndex = seedIndex;
+            } else if(maxRate < seedRate || (maxRate == seedRate && maxIndex != -1 && seedIndex < maxIndex)) {
+                maxRate = seedRate;
+                maxIndex = seedIndex;
+            }
+        }
+
+        long[] order = groupOrder(query.length, scrollCompare);
+        for (int o = order.length - 1; o >= 0; o--) {
+            int groupBound = (int) (order[o] >> 32);
+            int group = (int) order[o];
+
+            if(groupBound < Compare.GREATER_RATE && (greaterIndex != Integer.MAX_VALUE ||
+                    groupBound < minRate || groupBound < maxRate)) {
+                break;
+            }
+
+            for (int g = groupStart(group); g < groupStart(group + 1); g++) {
+                int count = groupIndex(g);
+                if(count >= greaterIndex)
+                    break;
+
+                int bound = bound(count, query.length, queryMask, scrollCompare);
+                if(bound < Compare.GREATER_RATE && (greaterIndex != Integer.MAX_VALUE || bound < minRate ||
+                        bound < maxRate || (bound == maxRate && count > maxIndex))) {
+                    continue;
+                }
+
+                int rate = rate(count, query, scrollCompare);
+
+                if (rate == Compare.GREATER_RATE) {
+                    greaterIndex = count;
+                    break;
+                }
+
+                if (maxRate < rate || (maxRate == rate && count < maxIndex)) {
+                    maxRate = rate;
+                    maxIndex = count;
+                }
+            }
+        }
+
+        if(greaterIndex != Integer.MAX_VALUE) {
+            return greaterIndex;
+        }
+
+        if (maxRate < minRate) {
+            return -1;
+        }
+
+        return maxIndex;
+    }
+
+    /**
+     *  Finds the {@code k} elements with the greatest compare rate
+     *
+     * @param query
+     *  The prepared {@code String} object used as comparison
+     * @param k
+     *  The greatest number of elements to return
+     * @param minRate
+     *  The lowest compare rate that an element has to get
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  The position of every element found in the high 32 bits and its rate in the low 32 bits,
+     *  sorted from the most similar
+     */
+    long[] topK(char[] query, int k, int minRate, boolean scrollCompare) {
+        return topK(query, minRate, scrollCompare, new RateHeap(Math.min(k, size())), new int[0]);
+    }
+
+    /**
+     *  Finds the elements with the greatest compare rate, adding them to a heap that already
+     *  holds the rates of some elements
+     *
+     * @param query
+     *  The prepared {@code String} object used as comparison
+     * @param minRate
+     *  The lowest compare rate that an element has to get
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @param heap
+     *  The heap of the elements found, its capacity is the number of elements to return
+     * @param rated
+     *  The sorted positions of the elements that were already offered to the heap, they are skipped
+     * @return
+     *  The position of every element found in the high 32 bits and its rate in the low 32 bits,
+     *  sorted from the most similar
+     */
+    long[] topK(char[] query, int minRate, boolean scrollCompare, RateHeap heap, int[] rated) {
+        long queryMask = Compare.charMask(query, 0, query.length);
+
+        if(0 >= minRate) {
+            for (int e = 0; e < emptyCount(); e++) {
+                heap.offer(0, empty(e));
+            }
+        }
+
+        long[] order = groupOrder(query.length, scrollCompare);
+        for (int o = order.length - 1; o >= 0; o--) {
+            int groupBound = (int) (order[o] >> 32);
+            int group = (int) order[o];
+
+            if(groupBound < minRate || !heap.accepts(groupBound, groupIndex(groupStart(group)))) {
+                continue;
+            }
+
+            for (int g = groupStart(group); g < groupStart(group + 1); g++) {
+                int count = groupIndex(g);
+
+                int bound = bound(count, query.length, queryMask, scrollCompare);
+                if(bound < minRate || !heap.accepts(bound, count) || Arrays.binarySearch(rated, count) >= 0)
+                    continue;
+
+                int result = rate(count, query, scrollCompare);
+                if (result >= minRate)
+                    heap.offer(result, count);
+            }
+        }
+        return heap.toArray();
+    }
+
+    /**
+     *  Gives the compare rate of every element
+     *
+     * @param query
+     *  The prepared {@code String} object used as comparison
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  The position of every element in the high 32 bits and its rate in the low 32 bits,
+     *  sorted by position
+     */
+    long[] rateAll(char[] query, boolean scrollCompare) {
+        long[] found = new long[size()];
+        for (int count = 0; count < found.length; count++) {
+            found[count] = ((long) count << 32) | (rate(count, query, scrollCompare) & 0xFFFFFFFFL);
+        }
+        return found;
+    }
+
+    /**
+     *  Finds every element with a compare rate equal or greater to {@code minRate}
+     *
+     * @param query
+     *  The prepared {@code String} object used as comparison
+     * @param minRate
+     *  The lowest compare rate that an element has to get
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  The position of every element found in the high 32 bits and its rate in the low 32 bits,
+     *  sorted by position
+     */
+    long[] collect(char[] query, int minRate, boolean scrollCompare) {
+        long queryMask = Compare.charMask(query, 0, query.length);
+
+        long[] found = new long[16];
+        int size = 0;
+        if(0 >= minRate) {
+            for (int e = 0; e < emptyCount(); e++) {
+                if(size == found.length)
+                    found = Arrays.copyOf(found, size * 2);
+                found[size++] = (long) empty(e) << 32;
+            }
+        }
+
+        for (int group = 0; group < groupCount(); group++) {
+            if(Compare.rateBound(groupLength(group), -1L, query.length, -1L, scrollCompare) < minRate)
+                continue;
+
+            for (int g = groupStart(group); g < groupStart(group + 1); g++) {
+                int count = groupIndex(g);
+                if(bound(count, query.length, queryMask, scrollCompare) < minRate)
+                    continue;
+
+                int rate = rate(count, query, scrollCompare);
+                if(rate >= minRate) {
+                    if(size == found.length)
+                        found = Arrays.copyOf(found, size * 2);
+                    found[size++] = ((long) count << 32) | (rate & 0xFFFFFFFFL);
+                }
+            }
+        }
+
+        found = Arrays.copyOf(found, size);
+        Arrays.sort(found);
+        return found;
+    }
+
+    /**
+     *  Sorts the groups by the best rate that their elements could get
+     *
+     * @param queryLength
+     *  The length of the prepared {@code String} object used as comparison
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  The bound of every group in the high 32 bits and the group in the low 32 bits,
+     *  sorted from the lowest bound
+     */
+    private long[] groupOrder(int queryLength, boolean scrollCompare) {
+        long[] order = new long[groupCount()];
+        for (int group = 0; group < groupCount(); group++) {
+            int bound = Compare.rateBound(groupLength(group), -1L, queryLength, -1L, scrollCompare);
+            order[group] = ((long) bound << 32) | group;
+        }
+        Arrays.sort(order);
+        return order;
+    }
+
+    /**
+     *  Gives a rate that is equal or greater than the compare rate of an element
+     *
+     * @param index
+     *  The position of the element in the index, it must not be empty
+     * @param queryLength
+     *  The length of the prepared {@code String} object used as comparison
+     * @param queryMask
+     *  The mask of the chars in the prepared {@code String} object used as comparison
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  An upper bound of the compare rate of the element
+     */
+    private int bound(int index, int queryLength, long queryMask, boolean scrollCompare) {
+        return Compare.rateBound(length(index), mask(index), queryLength, queryMask, scrollCompare);
+    }
+}
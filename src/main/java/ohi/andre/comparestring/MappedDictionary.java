@@ -0,0 +1,557 @@
+package ohi.andre.comparestring;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import ohi.andre.comparestring.Compare.CompareInfo;
+
+/**
+ *  A set of {@code String} objects prepared once and stored in a file, to be compared many times
+ *  without loading them. The file is written by {@link #write(Path, String[])} and opened
+ *  by {@link #open(Path)}, which maps it read only: the elements are read from the page cache,
+ *  that is shared by every process that opens the same file, and only the elements
+ *  returned by a query are decoded to {@code String} objects.
+ *  Every query method gives the same result of the corresponding method in {@link CompareIndex}.
+ *  <p>
+ *  The file holds the prepared forms of the elements, as Latin-1 bytes when every prepared char fits
+ *  in one or as UTF-16 chars otherwise, their offsets, their masks and their groups by length
+ *  (see {@link GroupedIndex}), and the original elements as UTF-16 chars.
+ *  Every element that is compared is copied once from the file to a buffer of the calling thread,
+ *  with a bulk read of its prepared bytes or chars, so a query costs a copy more per candidate than in {@link CompareIndex}.
+ *  The whole file must be smaller than 2 GB.
+ *  <p>
+ *  An instance is thread safe
+ */
+public final class MappedDictionary extends GroupedIndex {
+
+    private static final int MAGIC = 0x43534431;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8 * 4;
+    private static final int LATIN1 = 1;
+
+    private final int size;
+    private final LongBuffer masks;
+    private final LongBuffer nulls;
+    private final IntBuffer offsets;
+    private final IntBuffer originalOffsets;
+    private final IntBuffer groupLengths;
+    private final IntBuffer groupStarts;
+    private final IntBuffer groupIndexes;
+    private final IntBuffer empty;
+    private final CharBuffer originals;
+
+    /**
+     * The prepared chars, in latin1 if the file holds only Latin-1 chars or else in utf16
+     */
+    private final ByteBuffer latin1;
+    private final CharBuffer utf16;
+
+    private MappedDictionary(ByteBuffer buffer) throws IOException {
+        if(buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC)
+            throw new IOException("The file is not a dictionary");
+        if(buffer.getInt(4) != VERSION)
+            throw new IOException("Unsupported dictionary version: " + buffer.getInt(4));
+
+        this.size = buffer.getInt(8);
+        int flags = buffer.getInt(12);
+        int groups = buffer.getInt(16);
+        int emptyCount = buffer.getInt(20);
+        int preparedLength = buffer.getInt(24);
+        int originalLength = buffer.getInt(28);
+        if(size < 0 || groups < 0 || emptyCount < 0 || emptyCount > size || preparedLength < 0 || originalLength < 0)
+            throw new IOException("The dictionary file is corrupted");
+
+        int position = HEADER_SIZE;
+        this.masks = section(buffer, position, size * 8).asLongBuffer();
+        position += size * 8;
+        this.nulls = section(buffer, position, words(size) * 8).asLongBuffer();
+        position += words(size) * 8;
+        this.offsets = section(buffer, position, (size + 1) * 4).asIntBuffer();
+        position += (size + 1) * 4;
+        this.originalOffsets = section(buffer, position, (size + 1) * 4).asIntBuffer();
+        position += (size + 1) * 4;
+        this.groupLengths = section(buffer, position, groups * 4).asIntBuffer();
+        position += groups * 4;
+        this.groupStarts = section(buffer, position, (groups + 1) * 4).asIntBuffer();
+        position += (groups + 1) * 4;
+        this.groupIndexes = section(buffer, position, (size - emptyCount) * 4).asIntBuffer();
+        position += (size - emptyCount) * 4;
+        this.empty = section(buffer, position, emptyCount * 4).asIntBuffer();
+        position += emptyCount * 4;
+        this.originals = section(buffer, position, originalLength * 2).asCharBuffer();
+        position += originalLength * 2;
+
+        if((flags & LATIN1) != 0) {
+            this.latin1 = section(buffer, position, preparedLength);
+            this.utf16 = null;
+        } else {
+            this.latin1 = null;
+            this.utf16 = section(buffer, position, preparedLength * 2).asCharBuffer();
+        }
+    }
+
+    /**
+     *  Opens a dictionary written by {@link #write(Path, String[])}. The file is mapped read only,
+     *  and it must not change while the dictionary is used
+     *
+     * @param file
+     *  The dictionary file
+     * @return
+     *  The dictionary
+     * @throws IOException
+     *  If the file can't be read or it is not a dictionary
+     */
+    public static MappedDictionary open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if(channel.size() > Integer.MAX_VALUE)
+                throw new IOException("The file is not a dictionary");
+
+            return new MappedDictionary(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     *  Prepares a set of {@code String} objects and writes it to a dictionary file,
+     *  that can be opened by {@link #open(Path)}. An existing file is replaced
+     *
+     * @param file
+     *  The dictionary file
+     * @param strings
+     *  The set of {@code String} objects
+     * @throws IOException
+     *  If the file can't be written
+     */
+    public static void write(Path file, String[] strings) throws IOException {
+        write(file, new CompareIndex(strings));
+    }
+
+    /**
+     *  Prepares a set of {@code String} objects and writes it to a dictionary file,
+     *  that can be opened by {@link #open(Path)}. An existing file is replaced
+     *
+     * @param file
+     *  The dictionary file
+     * @param strings
+     *  The set of {@code String} objects
+     * @throws IOException
+     *  If the file can't be written
+     */
+    public static void write(Path file, Collection<String> strings) throws IOException {
+        write(file, new CompareIndex(strings));
+    }
+
+    private static void write(Path file, CompareIndex index) throws IOException {
+        int size = index.size();
+        char[] chars = index.chars();
+
+        boolean latin1 = true;
+        for (char c : chars) {
+            if(c > 0xFF) {
+                latin1 = false;
+                break;
+            }
+        }
+
+        long originalLength = 0;
+        for (int count = 0; count < size; count++) {
+            String current = index.get(count);
+            if(current != null)
+                originalLength += current.length();
+        }
+
+        int groups = index.groupCount();
+        int emptyCount = index.emptyCount();
+        long length = HEADER_SIZE + size * 8L + words(size) * 8L + (size + 1) * 8L + groups * 4L + (groups + 1) * 4L +
+                size * 4L + originalLength * 2 + chars.length * (latin1 ? 1L : 2L);
+        if(length > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("The dictionary would be larger than 2 GB");
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(size).putInt(latin1 ? LATIN1 : 0).putInt(groups)
+                    .putInt(emptyCount).putInt(chars.length).putInt((int) originalLength);
+
+            for (int count = 0; count < size; count++) {
+                buffer.putLong(index.mask(count));
+            }
+
+            long[] nulls = new long[words(size)];
+            for (int count = 0; count < size; count++) {
+                if(index.get(count) == null)
+                    nulls[count >>> 6] |= 1L << count;
+            }
+            for (long word : nulls) {
+                buffer.putLong(word);
+            }
+
+            for (int count = 0; count <= size; count++) {
+                buffer.putInt(index.offset(count));
+            }
+
+            int offset = 0;
+            buffer.putInt(offset);
+            for (int count = 0; count < size; count++) {
+                String current = index.get(count);
+                offset += current == null ? 0 : current.length();
+                buffer.putInt(offset);
+            }
+
+            for (int group = 0; group < groups; group++) {
+                buffer.putInt(index.groupLength(group));
+            }
+            for (int group = 0; group <= groups; group++) {
+                buffer.putInt(index.groupStart(group));
+            }
+            for (int g = 0; g < size - emptyCount; g++) {
+                buffer.putInt(index.groupIndex(g));
+            }
+            for (int e = 0; e < emptyCount; e++) {
+                buffer.putInt(index.empty(e));
+            }
+
+            for (int count = 0; count < size; count++) {
+                String current = index.get(count);
+                if(current == null)
+                    continue;
+
+                for (int i = 0; i < current.length(); i++) {
+                    buffer.putChar(current.charAt(i));
+                }
+            }
+
+            for (char c : chars) {
+                if(latin1)
+                    buffer.put((byte) c);
+                else
+                    buffer.putChar(c);
+            }
+
+            buffer.force();
+        }
+    }
+
+    /**
+     *  Get the number of {@code String} objects in the dictionary
+     *
+     * @return
+     *  The size of the set of {@code String} objects
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     *  Get an element of the dictionary, decoding it from the file
+     *
+     * @param index
+     *  The position of the element, in the order of the set the dictionary was written from
+     * @return
+     *  The {@code String} object at {@code index}
+     */
+    public String get(int index) {
+        if((nulls.get(index >>> 6) & (1L << index)) != 0)
+            return null;
+
+        int start = originalOffsets.get(index);
+        char[] chars = new char[originalOffsets.get(index + 1) - start];
+        for (int count = 0; count < chars.length; count++) {
+            chars[count] = originals.get(start + count);
+        }
+        return new String(chars);
+    }
+
+    /**
+     *  Compare the {@code String} parameter to every element of the dictionary, and
+     *  returns the most similar {@code String}, or null if the greatest rate is lower
+     *  than {@code minRate}
+     *
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be returned
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  The most similar {@code String} object in the dictionary, or null if nothing was found
+     * @see CompareIndex#similarString(String, int, boolean)
+     */
+    public String similarString(String string, int minRate, boolean scrollCompare) {
+        if(string == null || size == 0 || string.length() == 0) {
+            return null;
+        }
+
+        int index = similarIndex(prepareQuery(string), minRate, scrollCompare);
+        return index == -1 ? null : get(index);
+    }
+
+    /**
+     *  Compare the {@code String} parameter to every element of the dictionary, and
+     *  returns the most similar {@code String}
+     *
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  The most similar {@code String} object in the dictionary, or null if nothing was found
+     * @see CompareIndex#similarString(String, boolean)
+     */
+    public String similarString(String string, boolean scrollCompare) {
+        return similarString(string, Compare.LOWER_RATE, scrollCompare);
+    }
+
+    /**
+     *  Compare the {@code String} parameter with every element of the dictionary, and
+     *  returns every similar {@code String} object with a rate greater than {@code minRate}
+     *
+     * @param similarStrings
+     *  Similar {@code String} objects will be put here
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be considered similar
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @see CompareIndex#similarStrings(List, String, int, boolean)
+     */
+    public void similarStrings(List<String> similarStrings, String string, int minRate, boolean scrollCompare) {
+        if(similarStrings == null || string == null || size == 0 || string.length() == 0) {
+            return;
+        }
+
+        for (long f : collect(prepareQuery(string), minRate, scrollCompare)) {
+            similarStrings.add(get((int) (f >>> 32)));
+        }
+    }
+
+    /**
+     *  Compare the {@code String} parameter with every element of the dictionary, and
+     *  returns every similar {@code String} object with a rate greater than {@code minRate}
+     *
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be considered similar
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  A list containing all of the similar {@code String} objects
+     * @see CompareIndex#similarStrings(String, int, boolean)
+     */
+    public List<String> similarStrings(String string, int minRate, boolean scrollCompare) {
+        List<String> list = new ArrayList<>();
+        similarStrings(list, string, minRate, scrollCompare);
+        return list;
+    }
+
+    /**
+     *  Returns a compare rate for every {@code String} object in the dictionary (if the rate
+     *  is equal or greater to {@code minRate}
+     *  This is not sorted!
+     *
+     * @param compareInfoList
+     *  The method will add here the {@code CompareInfo} objects
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be considered similar
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @see CompareIndex#compareInfo(List, String, int, boolean)
+     */
+    public void compareInfo(List<CompareInfo> compareInfoList, String string, int minRate, boolean scrollCompare) {
+        if(compareInfoList == null || string == null || size == 0 || string.length() == 0) {
+            return;
+        }
+
+        char[] query = prepareQuery(string);
+        long[] found = minRate == -1 ? rateAll(query, scrollCompare) : collect(query, minRate, scrollCompare);
+        for (long f : found) {
+            compareInfoList.add(new CompareInfo(get((int) (f >>> 32)), (int) f));
+        }
+    }
+
+    /**
+     *  Returns a compare rate for every {@code String} object in the dictionary (if the rate
+     *  is equal or greater to {@code minRate}
+     *  This is not sorted!
+     *
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be considered similar
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  A list containing the {@code CompareInfo} objects for every
+     *  {@code String} object in the dictionary
+     * @see CompareIndex#compareInfo(String, int, boolean)
+     */
+    public List<CompareInfo> compareInfo(String string, int minRate, boolean scrollCompare) {
+        List<CompareInfo> infos = new ArrayList<>();
+        compareInfo(infos, string, minRate, scrollCompare);
+        return infos;
+    }
+
+    /**
+     *  Returns a compare rate for every {@code String} object in the dictionary
+     *  This is not sorted!
+     *
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  A list containing the rates for every {@code String} object in the dictionary
+     * @see CompareIndex#compareInfo(String, boolean)
+     */
+    public List<CompareInfo> compareInfo(String string, boolean scrollCompare) {
+        return compareInfo(string, Compare.LOWER_RATE, scrollCompare);
+    }
+
+    /**
+     *  Returns the {@code k} {@code String} objects in the dictionary with the greatest compare rate
+     *  (if the rate is equal or greater to {@code minRate}), sorted from the most similar.
+     *  Elements with the same rate keep the order of the dictionary
+     *
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param k
+     *  The greatest number of {@code CompareInfo} objects to return
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be considered similar
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  A sorted list containing at most {@code k} {@code CompareInfo} objects
+     * @see CompareIndex#topK(String, int, int, boolean)
+     */
+    public List<CompareInfo> topK(String string, int k, int minRate, boolean scrollCompare) {
+        if(string == null || size == 0 || string.length() == 0 || k <= 0) {
+            return new ArrayList<>();
+        }
+
+        long[] found = topK(prepareQuery(string), k, minRate, scrollCompare);
+        List<CompareInfo> infos = new ArrayList<>(found.length);
+        for (long f : found) {
+            infos.add(new CompareInfo(get((int) (f >>> 32)), (int) f));
+        }
+        return infos;
+    }
+
+    private static char[] prepareQuery(String string) {
+        return Compare.prepareToCompare(string).toCharArray();
+    }
+
+    @Override
+    int length(int index) {
+        return offsets.get(index + 1) - offsets.get(index);
+    }
+
+    @Override
+    long mask(int index) {
+        return masks.get(index);
+    }
+
+    /**
+     *  Compares an element of the dictionary to a prepared query. The prepared chars of the element
+     *  are copied from the file with a bulk read to a buffer of the calling thread, that is reused by every comparison.
+     *  A Latin-1 element is compared from its bytes in linear mode, in scrolling mode it is widened first
+     *
+     * @param index
+     *  The position of the element in the dictionary
+     * @param query
+     *  The prepared {@code String} object used as comparison
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  The compare rate of the element
+     */
+    @Override
+    int rate(int index, char[] query, boolean scrollCompare) {
+        if(originalOffsets.get(index + 1) == originalOffsets.get(index))
+            return 0;
+
+        int offset = offsets.get(index);
+        int length = offsets.get(index + 1) - offset;
+        char[] chars = Compare.scratch(length);
+        if(latin1 != null) {
+            byte[] bytes = Compare.byteScratch(length);
+            ByteBuffer source = latin1.duplicate();
+            ((Buffer) source).position(offset);
+            source.get(bytes, 0, length);
+            if(!scrollCompare)
+                return Compare.linearRate(bytes, 0, length, query, 0, query.length);
+
+            Compare.widen(bytes, 0, length, chars, 0);
+        } else {
+            CharBuffer source = utf16.duplicate();
+            ((Buffer) source).position(offset);
+            source.get(chars, 0, length);
+        }
+
+        return scrollCompare ? Compare.scrollRate(chars, 0, length, query, 0, query.length) :
+                Compare.linearRate(chars, 0, length, query, 0, query.length);
+    }
+
+    @Override
+    int emptyCount() {
+        return empty.capacity();
+    }
+
+    @Override
+    int empty(int e) {
+        return empty.get(e);
+    }
+
+    @Override
+    int groupCount() {
+        return groupLengths.capacity();
+    }
+
+    @Override
+    int groupLength(int group) {
+        return groupLengths.get(group);
+    }
+
+    @Override
+    int groupStart(int group) {
+        return groupStarts.get(group);
+    }
+
+    @Override
+    int groupIndex(int g) {
+        return groupIndexes.get(g);
+    }
+
+    private static int words(int bits) {
+        return (bits + 63) >>> 6;
+    }
+
+    /**
+     *  Get a part of a buffer, that starts at its index 0
+     */
+    private static ByteBuffer section(ByteBuffer buffer, int position, int length) throws IOException {
+        if(position < 0 || length < 0 || position + length > buffer.capacity())
+            throw new IOException("The dictionary file is truncated");
+
+        ByteBuffer section = buffer.duplicate();
+        ((Buffer) section).position(position);
+        ((Buffer) section).limit(position + length);
+        return section.slice();
+    }
+}
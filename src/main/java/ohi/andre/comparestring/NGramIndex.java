@@ -0,0 +1,409 @@
+package ohi.andre.comparestring;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import ohi.andre.comparestring.Compare.CompareInfo;
+
+/**
+ *  A {@link CompareIndex} with an inverted index of the n-grams of the prepared elements: every sequence
+ *  of {@code gramLength} prepared chars is mapped to the sorted positions of the elements that contain it.
+ *  A query first retrieves the candidates, the elements that share at least {@code minShared} different n-grams
+ *  with the prepared query, and compares them before the others.
+ *  <p>
+ *  The compare rate looks for every char of the shorter {@code String} object near the same position
+ *  in the longer one, so an element can be similar to the query without sharing n-grams
+ *  (for instance when two chars are swapped). The recall mode chooses what to do with the other elements:
+ *  <ul>
+ *  <li>exact: the results are the same of {@link CompareIndex}. {@link #similarString(String, int, boolean)}
+ *  and {@link #topK(String, int, int, boolean)} start from the rates of the candidates and then search
+ *  the other elements, skipping the ones that can't beat them.
+ *  {@link #similarStrings(String, int, boolean)} and {@link #compareInfo(String, int, boolean)} search every element</li>
+ *  <li>filtered: only the candidates are compared, so only the elements that share enough n-grams can be returned</li>
+ *  </ul>
+ *  In both modes a query with less than {@code gramLength} prepared chars has no n-grams, and it is compared to every element
+ */
+public class NGramIndex {
+
+    private final CompareIndex index;
+    private final int gramLength;
+    private final int minShared;
+    private final boolean exact;
+
+    /**
+     * The different n-grams, sorted, and the positions of the elements that contain the n-gram keys[i]:
+     * from postingStarts[i] to postingStarts[i + 1] in postings
+     */
+    private final long[] keys;
+    private final int[] postingStarts;
+    private final int[] postings;
+
+    /**
+     *  Construct a new instance of {@code NGramIndex}
+     *
+     * @param strings
+     *  The set of {@code String} objects. The array is copied, later changes are not seen by the index
+     * @param gramLength
+     *  The number of chars of every n-gram, from 1 to 3
+     * @param minShared
+     *  The lowest number of different n-grams that an element has to share with the query to be a candidate
+     * @param exact
+     *  True to get the same results of {@link CompareIndex}, false to compare only the candidates
+     */
+    public NGramIndex(String[] strings, int gramLength, int minShared, boolean exact) {
+        if(gramLength < 1 || gramLength > 3)
+            throw new IllegalArgumentException("The length of the n-grams must be from 1 to 3");
+        if(minShared < 1)
+            throw new IllegalArgumentException("The candidates must share at least an n-gram");
+
+        this.index = new CompareIndex(strings);
+        this.gramLength = gramLength;
+        this.minShared = minShared;
+        this.exact = exact;
+
+        char[] chars = index.chars();
+        int grams = 0;
+        for (int count = 0; count < index.size(); count++) {
+            grams += Math.max(0, index.length(count) - gramLength + 1);
+        }
+
+        long[] all = new long[grams];
+        for (int count = 0, g = 0; count < index.size(); count++) {
+            int offset = index.offset(count);
+            for (int i = offset; i + gramLength <= offset + index.length(count); i++) {
+                all[g++] = key(chars, i, gramLength);
+            }
+        }
+        Arrays.sort(all);
+
+        int distinct = 0;
+        for (int g = 0; g < all.length; g++) {
+            if(g == 0 || all[g] != all[g - 1])
+                all[distinct++] = all[g];
+        }
+        this.keys = Arrays.copyOf(all, distinct);
+
+        // every element is counted once for each different n-gram, elements are visited in order
+        // so the posting lists are sorted and an element already added is the last one of the list
+        int[] last = new int[distinct];
+        Arrays.fill(last, -1);
+        int[] counts = new int[distinct];
+        for (int count = 0; count < index.size(); count++) {
+            int offset = index.offset(count);
+            for (int i = offset; i + gramLength <= offset + index.length(count); i++) {
+                int key = Arrays.binarySearch(keys, key(chars, i, gramLength));
+                if(last[key] != count) {
+                    last[key] = count;
+                    counts[key]++;
+                }
+            }
+        }
+
+        this.postingStarts = new int[distinct + 1];
+        for (int key = 0; key < distinct; key++) {
+            postingStarts[key + 1] = postingStarts[key] + counts[key];
+        }
+
+        this.postings = new int[postingStarts[distinct]];
+        int[] ends = Arrays.copyOf(postingStarts, distinct);
+        Arrays.fill(last, -1);
+        for (int count = 0; count < index.size(); count++) {
+            int offset = index.offset(count);
+            for (int i = offset; i + gramLength <= offset + index.length(count); i++) {
+                int key = Arrays.binarySearch(keys, key(chars, i, gramLength));
+                if(last[key] != count) {
+                    last[key] = count;
+                    postings[ends[key]++] = count;
+                }
+            }
+        }
+    }
+
+    /**
+     *  Construct a new instance of {@code NGramIndex}
+     *
+     * @param strings
+     *  The set of {@code String} objects
+     * @param gramLength
+     *  The number of chars of every n-gram, from 1 to 3
+     * @param minShared
+     *  The lowest number of different n-grams that an element has to share with the query to be a candidate
+     * @param exact
+     *  True to get the same results of {@link CompareIndex}, false to compare only the candidates
+     */
+    public NGramIndex(Collection<String> strings, int gramLength, int minShared, boolean exact) {
+        this(strings.toArray(new String[strings.size()]), gramLength, minShared, exact);
+    }
+
+    /**
+     *  Construct a new instance of {@code NGramIndex} that indexes bigrams, and gives the same
+     *  results of {@link CompareIndex}
+     *
+     * @param strings
+     *  The set of {@code String} objects
+     */
+    public NGramIndex(String[] strings) {
+        this(strings, 2, 1, true);
+    }
+
+    /**
+     *  Get the number of {@code String} objects in the index
+     *
+     * @return
+     *  The size of the set of {@code String} objects
+     */
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     *  Get an element of the index
+     *
+     * @param index
+     *  The position of the element, in the order of the set the index was built from
+     * @return
+     *  The {@code String} object at {@code index}
+     */
+    public String get(int index) {
+        return this.index.get(index);
+    }
+
+    /**
+     *  Compare the {@code String} parameter to the elements of the index, and
+     *  returns the most similar {@code String}, or null if the greatest rate is lower
+     *  than {@code minRate}
+     *
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be returned
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  The most similar {@code String} object in the index, or null if nothing was found
+     * @see CompareIndex#similarString(String, int, boolean)
+     */
+    public String similarString(String string, int minRate, boolean scrollCompare) {
+        if(string == null || index.size() == 0 || string.length() == 0) {
+            return null;
+        }
+
+        char[] query = Compare.prepareToCompare(string).toCharArray();
+        if(query.length < gramLength)
+            return index.similarString(string, minRate, scrollCompare);
+
+        int[] candidates = candidates(query);
+        int maxRate = Compare.LOWER_RATE, maxIndex = -1;
+        for (int count : candidates) {
+            int rate = index.rate(count, query, scrollCompare);
+
+            if (rate == Compare.GREATER_RATE) {
+                maxRate = rate;
+                maxIndex = count;
+                break;
+            }
+
+            if (maxRate < rate) {
+                maxRate = rate;
+                maxIndex = count;
+            }
+        }
+
+        if(exact) {
+            maxIndex = index.similarIndex(query, minRate, scrollCompare, maxRate, maxIndex);
+        } else if(maxRate < minRate) {
+            maxIndex = -1;
+        }
+        return maxIndex == -1 ? null : index.get(maxIndex);
+    }
+
+    /**
+     *  Compare the {@code String} parameter to the elements of the index, and
+     *  returns the most similar {@code String}
+     *
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  The most similar {@code String} object in the index, or null if nothing was found
+     * @see CompareIndex#similarString(String, boolean)
+     */
+    public String similarString(String string, boolean scrollCompare) {
+        return similarString(string, Compare.LOWER_RATE, scrollCompare);
+    }
+
+    /**
+     *  Compare the {@code String} parameter with the elements of the index, and
+     *  returns every similar {@code String} object with a rate greater than {@code minRate}
+     *
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be considered similar
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  A list containing all of the similar {@code String} objects
+     * @see CompareIndex#similarStrings(String, int, boolean)
+     */
+    public List<String> similarStrings(String string, int minRate, boolean scrollCompare) {
+        if(string == null || index.size() == 0 || string.length() == 0) {
+            return new ArrayList<>();
+        }
+
+        char[] query = Compare.prepareToCompare(string).toCharArray();
+        if(exact || query.length < gramLength)
+            return index.similarStrings(string, minRate, scrollCompare);
+
+        List<String> list = new ArrayList<>();
+        for (int count : candidates(query)) {
+            if (index.rate(count, query, scrollCompare) >= minRate)
+                list.add(index.get(count));
+        }
+        return list;
+    }
+
+    /**
+     *  Returns a compare rate for the elements of the index (if the rate is equal or greater to {@code minRate}
+     *  This is not sorted!
+     *
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be considered similar
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  A list containing the {@code CompareInfo} objects
+     * @see CompareIndex#compareInfo(String, int, boolean)
+     */
+    public List<CompareInfo> compareInfo(String string, int minRate, boolean scrollCompare) {
+        if(string == null || index.size() == 0 || string.length() == 0) {
+            return new ArrayList<>();
+        }
+
+        char[] query = Compare.prepareToCompare(string).toCharArray();
+        if(exact || query.length < gramLength)
+            return index.compareInfo(string, minRate, scrollCompare);
+
+        List<CompareInfo> infos = new ArrayList<>();
+        for (int count : candidates(query)) {
+            int result = index.rate(count, query, scrollCompare);
+
+            if (minRate == -1 || result >= minRate)
+                infos.add(new CompareInfo(index.get(count), result));
+        }
+        return infos;
+    }
+
+    /**
+     *  Returns the {@code k} {@code String} objects in the index with the greatest compare rate
+     *  (if the rate is equal or greater to {@code minRate}), sorted from the most similar.
+     *  Elements with the same rate keep the order of the index
+     *
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param k
+     *  The greatest number of {@code CompareInfo} objects to return
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be considered similar
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  A sorted list containing at most {@code k} {@code CompareInfo} objects
+     * @see CompareIndex#topK(String, int, int, boolean)
+     */
+    public List<CompareInfo> topK(String string, int k, int minRate, boolean scrollCompare) {
+        if(string == null || index.size() == 0 || string.length() == 0 || k <= 0) {
+            return new ArrayList<>();
+        }
+
+        char[] query = Compare.prepareToCompare(string).toCharArray();
+        if(query.length < gramLength)
+            return index.topK(string, k, minRate, scrollCompare);
+
+        int[] candidates = candidates(query);
+        RateHeap heap = new RateHeap(Math.min(k, index.size()));
+        for (int count : candidates) {
+            int result = index.rate(count, query, scrollCompare);
+
+            if (result >= minRate)
+                heap.offer(result, count);
+        }
+
+        long[] found = exact ? index.topK(query, minRate, scrollCompare, heap, candidates) : heap.toArray();
+        List<CompareInfo> infos = new ArrayList<>(found.length);
+        for (long f : found) {
+            infos.add(new CompareInfo(index.get((int) (f >>> 32)), (int) f));
+        }
+        return infos;
+    }
+
+    /**
+     *  Finds the elements that share at least {@code minShared} different n-grams with a prepared query
+     *
+     * @param query
+     *  The prepared {@code String} object used as comparison, with at least {@code gramLength} chars
+     * @return
+     *  The sorted positions of the candidates
+     */
+    private int[] candidates(char[] query) {
+        long[] grams = new long[query.length - gramLength + 1];
+        for (int i = 0; i < grams.length; i++) {
+            grams[i] = key(query, i, gramLength);
+        }
+        Arrays.sort(grams);
+
+        int found = 0;
+        for (int g = 0; g < grams.length; g++) {
+            if(g > 0 && grams[g] == grams[g - 1])
+                continue;
+
+            int key = Arrays.binarySearch(keys, grams[g]);
+            if(key >= 0)
+                found += postingStarts[key + 1] - postingStarts[key];
+        }
+
+        int[] candidates = new int[found];
+        found = 0;
+        for (int g = 0; g < grams.length; g++) {
+            if(g > 0 && grams[g] == grams[g - 1])
+                continue;
+
+            int key = Arrays.binarySearch(keys, grams[g]);
+            if(key >= 0) {
+                int length = postingStarts[key + 1] - postingStarts[key];
+                System.arraycopy(postings, postingStarts[key], candidates, found, length);
+                found += length;
+            }
+        }
+        Arrays.sort(candidates);
+
+        // an element appears once for every different n-gram it shares with the query
+        int size = 0;
+        for (int start = 0, end; start < candidates.length; start = end) {
+            end = start + 1;
+            while (end < candidates.length && candidates[end] == candidates[start]) {
+                end++;
+            }
+
+            if(end - start >= minShared)
+                candidates[size++] = candidates[start];
+        }
+        return Arrays.copyOf(candidates, size);
+    }
+
+    /**
+     *  Packs an n-gram in a {@code long}, 16 bits for every char
+     */
+    private static long key(char[] chars, int offset, int length) {
+        long key = 0L;
+        for (int i = offset; i < offset + length; i++) {
+            key = (key << 16) | chars[i];
+        }
+        return key;
+    }
+}
@@ -0,0 +1,731 @@
+package ohi.andre.comparestring;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import ohi.andre.comparestring.Compare.CompareInfo;
+
+/**
+ *  Parallel versions of the search methods of {@link Compare} and {@link CompareIndex}.
+ *  The set of {@code String} objects is split in chunks that are compared concurrently
+ *  in a {@link ForkJoinPool}, then the partial results are merged in the order of the set,
+ *  so the result is always the same that the sequential method gives
+ */
+public class ParallelCompare {
+
+    private static final int MIN_CHUNK_SIZE = 256;
+    private static final int CHUNKS_PER_THREAD = 8;
+
+    /**
+     * The batch methods compare a tile of QUERY_TILE queries to a tile of CANDIDATE_TILE candidates
+     * before moving to the next candidates, so the prepared chars of the candidates are read
+     * from the cache once for every query of the tile
+     */
+    private static final int QUERY_TILE = 32;
+    private static final int CANDIDATE_TILE = 1024;
+
+    private ParallelCompare() {}
+
+    /**
+     *  Compare the {@code String} parameter to every element of the {@code String} Array in parallel,
+     *  and returns the most similar {@code String}, or null if the greatest rate is lower than {@code minRate}
+     *
+     * @param pool
+     *  The pool that runs the comparisons
+     * @param strings
+     *  The set of {@code String} objects
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be returned
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  The most similar {@code String} object in the {@code String} set, or null if nothing was found
+     * @see Compare#similarString(String[], String, int, boolean)
+     */
+    public static String similarString(ForkJoinPool pool, String[] strings, String string, int minRate,
+            boolean scrollCompare) {
+
+        if(string == null || strings == null || strings.length == 0 || string.length() == 0) {
+            return null;
+        }
+
+        return similarString(pool, Scorer.of(strings), string, minRate, scrollCompare);
+    }
+
+    /**
+     *  Compare the {@code String} parameter to every element of the {@code String} Array in the common pool,
+     *  and returns the most similar {@code String}, or null if the greatest rate is lower than {@code minRate}
+     *
+     * @param strings
+     *  The set of {@code String} objects
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be returned
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  The most similar {@code String} object in the {@code String} set, or null if nothing was found
+     */
+    public static String similarString(String[] strings, String string, int minRate, boolean scrollCompare) {
+        return similarString(ForkJoinPool.commonPool(), strings, string, minRate, scrollCompare);
+    }
+
+    /**
+     *  Compare the {@code String} parameter to every element of the index in parallel,
+     *  and returns the most similar {@code String}, or null if the greatest rate is lower than {@code minRate}
+     *
+     * @param pool
+     *  The pool that runs the comparisons
+     * @param index
+     *  The prepared set of {@code String} objects
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be returned
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  The most similar {@code String} object in the index, or null if nothing was found
+     * @see CompareIndex#similarString(String, int, boolean)
+     */
+    public static String similarString(ForkJoinPool pool, CompareIndex index, String string, int minRate,
+            boolean scrollCompare) {
+
+        if(string == null || index == null || index.size() == 0 || string.length() == 0) {
+            return null;
+        }
+
+        return similarString(pool, Scorer.of(index), string, minRate, scrollCompare);
+    }
+
+    /**
+     *  Compare the {@code String} parameter to every element of the index in the common pool,
+     *  and returns the most similar {@code String}, or null if the greatest rate is lower than {@code minRate}
+     *
+     * @param index
+     *  The prepared set of {@code String} objects
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be returned
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  The most similar {@code String} object in the index, or null if nothing was found
+     */
+    public static String similarString(CompareIndex index, String string, int minRate, boolean scrollCompare) {
+        return similarString(ForkJoinPool.commonPool(), index, string, minRate, scrollCompare);
+    }
+
+    /**
+     *  Compare the {@code String} parameter with every element of the {@code String} Array in parallel, and
+     *  returns every similar {@code String} object with a rate greater than {@code minRate}, in the order of the set
+     *
+     * @param pool
+     *  The pool that runs the comparisons
+     * @param strings
+     *  The set of {@code String} objects
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be considered similar
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  A list containing every similar String
+     * @see Compare#similarStrings(String[], String, int, boolean)
+     */
+    public static List<String> similarStrings(ForkJoinPool pool, String[] strings, String string, int minRate,
+            boolean scrollCompare) {
+
+        if(strings == null || string == null || strings.length == 0 || string.length() == 0) {
+            return new ArrayList<>();
+        }
+
+        return similarStrings(pool, Scorer.of(strings), string, minRate, scrollCompare);
+    }
+
+    /**
+     *  Compare the {@code String} parameter with every element of the {@code String} Array in the common pool, and
+     *  returns every similar {@code String} object with a rate greater than {@code minRate}, in the order of the set
+     *
+     * @param strings
+     *  The set of {@code String} objects
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be considered similar
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  A list containing every similar String
+     */
+    public static List<String> similarStrings(String[] strings, String string, int minRate, boolean scrollCompare) {
+        return similarStrings(ForkJoinPool.commonPool(), strings, string, minRate, scrollCompare);
+    }
+
+    /**
+     *  Compare the {@code String} parameter with every element of the index in parallel, and
+     *  returns every similar {@code String} object with a rate greater than {@code minRate}, in the order of the index
+     *
+     * @param pool
+     *  The pool that runs the comparisons
+     * @param index
+     *  The prepared set of {@code String} objects
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be considered similar
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  A list containing every similar String
+     * @see CompareIndex#similarStrings(String, int, boolean)
+     */
+    public static List<String> similarStrings(ForkJoinPool pool, CompareIndex index, String string, int minRate,
+            boolean scrollCompare) {
+
+        if(index == null || string == null || index.size() == 0 || string.length() == 0) {
+            return new ArrayList<>();
+        }
+
+        return similarStrings(pool, Scorer.of(index), string, minRate, scrollCompare);
+    }
+
+    /**
+     *  Compare the {@code String} parameter with every element of the index in the common pool, and
+     *  returns every similar {@code String} object with a rate greater than {@code minRate}, in the order of the index
+     *
+     * @param index
+     *  The prepared set of {@code String} objects
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be considered similar
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  A list containing every similar String
+     */
+    public static List<String> similarStrings(CompareIndex index, String string, int minRate, boolean scrollCompare) {
+        return similarStrings(ForkJoinPool.commonPool(), index, string, minRate, scrollCompare);
+    }
+
+    /**
+     *  Returns a compare rate for every {@code String} object in the {@code String} Array (if the rate
+     *  is equal or greater to {@code minRate}), computed in parallel.
+     *  The list follows the order of the set, it is not sorted by rate!
+     *
+     * @param pool
+     *  The pool that runs the comparisons
+     * @param strings
+     *  The set of {@code String} objects
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be considered similar
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  A list containing the {@code CompareInfo} objects
+     * @see Compare#compareInfo(String[], String, int, boolean)
+     */
+    public static List<CompareInfo> compareInfo(ForkJoinPool pool, String[] strings, String string, int minRate,
+            boolean scrollCompare) {
+
+        if(strings == null || string == null || strings.length == 0 || string.length() == 0) {
+            return new ArrayList<>();
+        }
+
+        return compareInfo(pool, Scorer.of(strings), string, minRate, scrollCompare);
+    }
+
+    /**
+     *  Returns a compare rate for every {@code String} object in the {@code String} Array (if the rate
+     *  is equal or greater to {@code minRate}), computed in the common pool.
+     *  The list follows the order of the set, it is not sorted by rate!
+     *
+     * @param strings
+     *  The set of {@code String} objects
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be considered similar
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  A list containing the {@code CompareInfo} objects
+     */
+    public static List<CompareInfo> compareInfo(String[] strings, String string, int minRate, boolean scrollCompare) {
+        return compareInfo(ForkJoinPool.commonPool(), strings, string, minRate, scrollCompare);
+    }
+
+    /**
+     *  Returns a compare rate for every {@code String} object in the index (if the rate
+     *  is equal or greater to {@code minRate}), computed in parallel.
+     *  The list follows the order of the index, it is not sorted by rate!
+     *
+     * @param pool
+     *  The pool that runs the comparisons
+     * @param index
+     *  The prepared set of {@code String} objects
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be considered similar
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  A list containing the {@code CompareInfo} objects
+     * @see CompareIndex#compareInfo(String, int, boolean)
+     */
+    public static List<CompareInfo> compareInfo(ForkJoinPool pool, CompareIndex index, String string, int minRate,
+            boolean scrollCompare) {
+
+        if(index == null || string == null || index.size() == 0 || string.length() == 0) {
+            return new ArrayList<>();
+        }
+
+        return compareInfo(pool, Scorer.of(index), string, minRate, scrollCompare);
+    }
+
+    /**
+     *  Returns a compare rate for every {@code String} object in the index (if the rate
+     *  is equal or greater to {@code minRate}), computed in the common pool.
+     *  The list follows the order of the index, it is not sorted by rate!
+     *
+     * @param index
+     *  The prepared set of {@code String} objects
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be considered similar
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  A list containing the {@code CompareInfo} objects
+     */
+    public static List<CompareInfo> compareInfo(CompareIndex index, String string, int minRate, boolean scrollCompare) {
+        return compareInfo(ForkJoinPool.commonPool(), index, string, minRate, scrollCompare);
+    }
+
+    /**
+     *  Compare every query to every element of the {@code String} Array in parallel, and returns the most
+     *  similar {@code String} for each query, or null if its greatest rate is lower than {@code minRate}.
+     *  The candidates and the queries are prepared once, and the queries are compared in tiles that run concurrently
+     *
+     * @param pool
+     *  The pool that runs the comparisons
+     * @param queries
+     *  The {@code String} objects used as comparison
+     * @param candidates
+     *  The set of {@code String} objects
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be returned
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  An array containing, at the position of every query, the same {@code String} object that
+     *  {@link Compare#similarString(String[], String, int, boolean)} returns for it
+     */
+    public static String[] similarStringsBatch(ForkJoinPool pool, String[] queries, String[] candidates, int minRate,
+            boolean scrollCompare) {
+
+        String[] similar = new String[queries.length];
+        if(candidates == null || candidates.length == 0) {
+            return similar;
+        }
+
+        CompareIndex index = new CompareIndex(candidates);
+        int[] found = new int[queries.length];
+        pool.invoke(new BatchTask(index, prepare(queries), minRate, 0, scrollCompare, found, null, 0, queries.length));
+
+        for (int q = 0; q < queries.length; q++) {
+            if(found[q] != -1)
+                similar[q] = index.get(found[q]);
+        }
+        return similar;
+    }
+
+    /**
+     *  Compare every query to every element of the {@code String} Array in the common pool, and returns the most
+     *  similar {@code String} for each query, or null if its greatest rate is lower than {@code minRate}
+     *
+     * @param queries
+     *  The {@code String} objects used as comparison
+     * @param candidates
+     *  The set of {@code String} objects
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be returned
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  An array containing the most similar {@code String} object for every query
+     * @see #similarStringsBatch(ForkJoinPool, String[], String[], int, boolean)
+     */
+    public static String[] similarStringsBatch(String[] queries, String[] candidates, int minRate, boolean scrollCompare) {
+        return similarStringsBatch(ForkJoinPool.commonPool(), queries, candidates, minRate, scrollCompare);
+    }
+
+    /**
+     *  Compare every query to every element of the {@code String} Array in parallel, and returns for each query
+     *  the {@code k} elements with the greatest compare rate (if the rate is equal or greater to {@code minRate}).
+     *  The candidates and the queries are prepared once, and the queries are compared in tiles that run concurrently
+     *
+     * @param pool
+     *  The pool that runs the comparisons
+     * @param queries
+     *  The {@code String} objects used as comparison
+     * @param candidates
+     *  The set of {@code String} objects
+     * @param k
+     *  The greatest number of {@code CompareInfo} objects to return for each query
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be considered similar
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  A list containing, at the position of every query, the same sorted list that
+     *  {@link Compare#topK(String[], String, int, int, boolean)} returns for it
+     */
+    public static List<List<CompareInfo>> topKBatch(ForkJoinPool pool, String[] queries, String[] candidates, int k,
+            int minRate, boolean scrollCompare) {
+
+        List<List<CompareInfo>> topK = new ArrayList<>(queries.length);
+        if(candidates == null || candidates.length == 0 || k <= 0) {
+            for (int q = 0; q < queries.length; q++) {
+                topK.add(new ArrayList<>());
+            }
+            return topK;
+        }
+
+        CompareIndex index = new CompareIndex(candidates);
+        long[][] found = new long[queries.length][];
+        pool.invoke(new BatchTask(index, prepare(queries), minRate, k, scrollCompare, null, found, 0, queries.length));
+
+        for (long[] f : found) {
+            List<CompareInfo> infos = new ArrayList<>(f.length);
+            for (long info : f) {
+                infos.add(new CompareInfo(index.get((int) (info >>> 32)), (int) info));
+            }
+            topK.add(infos);
+        }
+        return topK;
+    }
+
+    /**
+     *  Compare every query to every element of the {@code String} Array in the common pool, and returns for each query
+     *  the {@code k} elements with the greatest compare rate (if the rate is equal or greater to {@code minRate})
+     *
+     * @param queries
+     *  The {@code String} objects used as comparison
+     * @param candidates
+     *  The set of {@code String} objects
+     * @param k
+     *  The greatest number of {@code CompareInfo} objects to return for each query
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be considered similar
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  A list containing a sorted list of at most {@code k} {@code CompareInfo} objects for every query
+     * @see #topKBatch(ForkJoinPool, String[], String[], int, int, boolean)
+     */
+    public static List<List<CompareInfo>> topKBatch(String[] queries, String[] candidates, int k, int minRate,
+            boolean scrollCompare) {
+        return topKBatch(ForkJoinPool.commonPool(), queries, candidates, k, minRate, scrollCompare);
+    }
+
+    /**
+     *  Prepares the queries of a batch
+     *
+     * @return
+     *  The prepared chars of every query, or null for the null and empty queries, that match nothing
+     */
+    private static char[][] prepare(String[] queries) {
+        char[][] prepared = new char[queries.length][];
+        for (int q = 0; q < queries.length; q++) {
+            if(queries[q] != null && queries[q].length() > 0)
+                prepared[q] = Compare.prepareToCompare(queries[q]).toCharArray();
+        }
+        return prepared;
+    }
+
+    private static String similarString(ForkJoinPool pool, Scorer scorer, String string, int minRate,
+            boolean scrollCompare) {
+        char[] query = Compare.prepareToCompare(string).toCharArray();
+        AtomicInteger greaterIndex = new AtomicInteger(Integer.MAX_VALUE);
+        Best best = pool.invoke(new SimilarStringTask(scorer, query, scrollCompare, greaterIndex, 0, scorer.size(),
+                chunkSize(pool, scorer.size())));
+
+        if(greaterIndex.get() != Integer.MAX_VALUE) {
+            return scorer.get(greaterIndex.get());
+        }
+
+        if (best.rate < minRate || best.index == -1) {
+            return null;
+        }
+
+        return scorer.get(best.index);
+    }
+
+    private static List<String> similarStrings(ForkJoinPool pool, Scorer scorer, String string, int minRate,
+            boolean scrollCompare) {
+        char[] query = Compare.prepareToCompare(string).toCharArray();
+        List<CompareInfo> infos = pool.invoke(new CompareInfoTask(scorer, query, scrollCompare, minRate, false, 0,
+                scorer.size(), chunkSize(pool, scorer.size())));
+        List<String> strings = new ArrayList<>(infos.size());
+        for (CompareInfo info : infos) {
+            strings.add(info.s);
+        }
+        return strings;
+    }
+
+    private static List<CompareInfo> compareInfo(ForkJoinPool pool, Scorer scorer, String string, int minRate,
+            boolean scrollCompare) {
+        char[] query = Compare.prepareToCompare(string).toCharArray();
+        return pool.invoke(new CompareInfoTask(scorer, query, scrollCompare, minRate, minRate == -1, 0, scorer.size(),
+                chunkSize(pool, scorer.size())));
+    }
+
+    private static int chunkSize(ForkJoinPool pool, int size) {
+        return Math.max(MIN_CHUNK_SIZE, size / (pool.getParallelism() * CHUNKS_PER_THREAD));
+    }
+
+    /**
+     *  The greatest rate found in a chunk, and the first position where it was found
+     */
+    private static class Best {
+
+        final int rate;
+        final int index;
+
+        Best(int rate, int index) {
+            this.rate = rate;
+            this.index = index;
+        }
+    }
+
+    /**
+     *  Looks for the most similar element of a chunk. When an element gets {@link Compare#GREATER_RATE}
+     *  its position is published in {@code greaterIndex}, and every task stops comparing the elements after it
+     */
+    private static class SimilarStringTask extends RecursiveTask<Best> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Scorer scorer;
+        private final char[] query;
+        private final boolean scrollCompare;
+        private final AtomicInteger greaterIndex;
+        private final int from, to, chunkSize;
+
+        SimilarStringTask(Scorer scorer, char[] query, boolean scrollCompare, AtomicInteger greaterIndex,
+                int from, int to, int chunkSize) {
+            this.scorer = scorer;
+            this.query = query;
+            this.scrollCompare = scrollCompare;
+            this.greaterIndex = greaterIndex;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        protected Best compute() {
+            if(to - from > chunkSize) {
+                int middle = (from + to) >>> 1;
+                SimilarStringTask left = new SimilarStringTask(scorer, query, scrollCompare, greaterIndex, from, middle,
+                        chunkSize);
+                SimilarStringTask right = new SimilarStringTask(scorer, query, scrollCompare, greaterIndex, middle, to,
+                        chunkSize);
+                right.fork();
+                Best leftBest = left.compute();
+                Best rightBest = right.join();
+                return rightBest.rate > leftBest.rate ? rightBest : leftBest;
+            }
+
+            int maxRate = Compare.LOWER_RATE, maxIndex = -1;
+            for (int count = from; count < to && count < greaterIndex.get(); count++) {
+                int rate = scorer.rate(count, query, scrollCompare);
+
+                if (rate == Compare.GREATER_RATE) {
+                    greaterIndex.accumulateAndGet(count, Math::min);
+                    break;
+                }
+
+                if (maxRate < rate) {
+                    maxRate = rate;
+                    maxIndex = count;
+                }
+            }
+            return new Best(maxRate, maxIndex);
+        }
+    }
+
+    /**
+     *  Collects the {@code CompareInfo} objects of a chunk, in the order of the set.
+     *  If {@code everyRate} is true every element is collected, as {@link Compare#compareInfo(List, String[], String, int, boolean)}
+     *  does when {@code minRate} is -1
+     */
+    private static class CompareInfoTask extends RecursiveTask<List<CompareInfo>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Scorer scorer;
+        private final char[] query;
+        private final boolean scrollCompare;
+        private final int minRate;
+        private final boolean everyRate;
+        private final int from, to, chunkSize;
+
+        CompareInfoTask(Scorer scorer, char[] query, boolean scrollCompare, int minRate, boolean everyRate,
+                int from, int to, int chunkSize) {
+            this.scorer = scorer;
+            this.query = query;
+            this.scrollCompare = scrollCompare;
+            this.minRate = minRate;
+            this.everyRate = everyRate;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        protected List<CompareInfo> compute() {
+            if(to - from > chunkSize) {
+                int middle = (from + to) >>> 1;
+                CompareInfoTask left = new CompareInfoTask(scorer, query, scrollCompare, minRate, everyRate, from, middle,
+                        chunkSize);
+                CompareInfoTask right = new CompareInfoTask(scorer, query, scrollCompare, minRate, everyRate, middle, to,
+                        chunkSize);
+                right.fork();
+                List<CompareInfo> infos = left.compute();
+                infos.addAll(right.join());
+                return infos;
+            }
+
+            List<CompareInfo> infos = new ArrayList<>();
+            for (int count = from; count < to; count++) {
+                int result = scorer.rate(count, query, scrollCompare);
+
+                if (everyRate || result >= minRate)
+                    infos.add(new CompareInfo(scorer.get(count), result));
+            }
+            return infos;
+        }
+    }
+
+    /**
+     *  Compares a range of queries to every candidate, a tile at a time. If {@code k} is 0 the most similar
+     *  candidate of every query is put in {@code similar}, else its {@code k} best rates are put in {@code topK}.
+     *  Candidates that can't beat the rates already found are skipped, see {@link Compare#rateBound(int, long, int, long, boolean)}
+     */
+    private static class BatchTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final CompareIndex index;
+        private final char[][] queries;
+        private final int minRate, k;
+        private final boolean scrollCompare;
+        private final int[] similar;
+        private final long[][] topK;
+        private final int from, to;
+
+        BatchTask(CompareIndex index, char[][] queries, int minRate, int k, boolean scrollCompare, int[] similar,
+                long[][] topK, int from, int to) {
+            this.index = index;
+            this.queries = queries;
+            this.minRate = minRate;
+            this.k = k;
+            this.scrollCompare = scrollCompare;
+            this.similar = similar;
+            this.topK = topK;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if(to - from > QUERY_TILE) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new BatchTask(index, queries, minRate, k, scrollCompare, similar, topK, from, middle),
+                        new BatchTask(index, queries, minRate, k, scrollCompare, similar, topK, middle, to));
+                return;
+            }
+
+            int tile = to - from;
+            long[] masks = new long[tile];
+            int[] maxRates = new int[tile];
+            int[] maxIndexes = new int[tile];
+            boolean[] greater = new boolean[tile];
+            RateHeap[] heaps = new RateHeap[tile];
+            for (int q = 0; q < tile; q++) {
+                char[] query = queries[from + q];
+                if(query != null)
+                    masks[q] = Compare.charMask(query, 0, query.length);
+                maxRates[q] = Compare.LOWER_RATE;
+                maxIndexes[q] = -1;
+                if(k > 0)
+                    heaps[q] = new RateHeap(Math.min(k, index.size()));
+            }
+
+            for (int start = 0; start < index.size(); start += CANDIDATE_TILE) {
+                int end = Math.min(index.size(), start + CANDIDATE_TILE);
+
+                for (int q = 0; q < tile; q++) {
+                    char[] query = queries[from + q];
+                    if(query == null || greater[q])
+                        continue;
+
+                    for (int count = start; count < end; count++) {
+                        String current = index.get(count);
+                        boolean empty = current == null || current.length() == 0;
+                        int bound = empty ? 0 : Compare.rateBound(index.length(count), index.mask(count),
+                                query.length, masks[q], scrollCompare);
+
+                        if(k > 0) {
+                            if(bound < minRate || !heaps[q].accepts(bound, count))
+                                continue;
+
+                            int result = index.rate(count, query, scrollCompare);
+                            if(result >= minRate)
+                                heaps[q].offer(result, count);
+                        } else {
+                            if(bound < Compare.GREATER_RATE && bound <= maxRates[q])
+                                continue;
+
+                            int rate = index.rate(count, query, scrollCompare);
+
+                            if (rate == Compare.GREATER_RATE) {
+                                greater[q] = true;
+                                maxIndexes[q] = count;
+                                break;
+                            }
+
+                            if (maxRates[q] < rate) {
+                                maxRates[q] = rate;
+                                maxIndexes[q] = count;
+                            }
+                        }
+                    }
+                }
+            }
+
+            for (int q = 0; q < tile; q++) {
+                if(k > 0)
+                    topK[from + q] = queries[from + q] == null ? new long[0] : heaps[q].toArray();
+                else
+                    similar[from + q] = greater[q] || maxRates[q] >= minRate ? maxIndexes[q] : -1;
+            }
+        }
+    }
+}
@@ -0,0 +1,701 @@
+package ohi.andre.comparestring;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import ohi.andre.comparestring.Compare.CompareInfo;
+
+/**
+ *  A set of {@code String} objects compared in linear mode, for sets whose elements share long prefixes
+ *  (paths, command names). The different prepared forms of the elements are the keys of a compressed prefix tree:
+ *  a node is a prefix shared by some keys, and it holds its chars only once.
+ *  <p>
+ *  The steps of {@link Compare#linearComparison(String, String)} only look at the chars before, at and after
+ *  the position of a char, so a query carries the state of its steps down the tree: the chars of a shared prefix
+ *  are compared once per query, not once per element. The state is kept both for the keys that are not longer
+ *  than the query, whose chars are compared to the query, and for the longer ones, whose chars the query is
+ *  compared to. A subtree is skipped when the best rate its keys could get is not good enough.
+ *  <p>
+ *  Every query method gives the same result of the corresponding method in {@link Compare} in linear mode.
+ *  An instance is immutable and thread safe
+ */
+public class PrefixTreeIndex {
+
+    private final String[] strings;
+
+    /**
+     * The positions of the null or empty elements, their rate is always 0
+     */
+    private final int[] empty;
+
+    /**
+     * The keys sorted, the key i goes from keyOffsets[i] to keyOffsets[i + 1] in chars.
+     * The positions of its elements go from postingStarts[i] to postingStarts[i + 1] in postings
+     */
+    private final char[] chars;
+    private final int[] keyOffsets;
+    private final int[] postingStarts;
+    private final int[] postings;
+
+    /**
+     * The nodes in preorder, the root is 0 and the subtree of a node goes from it to subtreeEnd[node].
+     * A node is the prefix of keyOf[node] long depth[node], and it is the whole key terminal[node] or -1.
+     * The other arrays hold the depth of the parent, the shortest and the longest key and the lowest position in the subtree
+     */
+    private final int[] depth;
+    private final int[] parentDepth;
+    private final int[] keyOf;
+    private final int[] terminal;
+    private final int[] subtreeEnd;
+    private final int[] minLength;
+    private final int[] maxLength;
+    private final int[] minPosition;
+
+    /**
+     *  Construct a new instance of {@code PrefixTreeIndex}
+     *
+     * @param strings
+     *  The set of {@code String} objects. The array is copied, later changes are not seen by the index
+     */
+    public PrefixTreeIndex(String[] strings) {
+        this.strings = strings.clone();
+
+        String[] prepared = CompareIndex.prepare(this.strings);
+        int emptyCount = 0;
+        for (String p : prepared) {
+            if(p == null)
+                emptyCount++;
+        }
+
+        // sorting the positions by prepared form puts equal keys next to each other, and keeps their positions in order
+        Integer[] order = new Integer[prepared.length - emptyCount];
+        this.empty = new int[emptyCount];
+        for (int count = 0, e = 0, o = 0; count < prepared.length; count++) {
+            if(prepared[count] == null)
+                empty[e++] = count;
+            else
+                order[o++] = count;
+        }
+        Arrays.sort(order, (i1, i2) -> prepared[i1].compareTo(prepared[i2]));
+
+        this.postings = new int[order.length];
+        int[] starts = new int[order.length + 1];
+        List<String> keys = new ArrayList<>();
+        int length = 0;
+        for (int o = 0; o < order.length; o++) {
+            postings[o] = order[o];
+            if(o == 0 || !prepared[order[o]].equals(prepared[order[o - 1]])) {
+                starts[keys.size()] = o;
+                keys.add(prepared[order[o]]);
+                length += prepared[order[o]].length();
+            }
+        }
+        starts[keys.size()] = order.length;
+        this.postingStarts = Arrays.copyOf(starts, keys.size() + 1);
+
+        this.chars = new char[length];
+        this.keyOffsets = new int[keys.size() + 1];
+        for (int key = 0, offset = 0; key < keys.size(); key++) {
+            keyOffsets[key] = offset;
+            keys.get(key).getChars(0, keys.get(key).length(), chars, offset);
+            offset += keys.get(key).length();
+        }
+        keyOffsets[keys.size()] = length;
+
+        // the tree is built from the sorted keys with the path of the last one, then the nodes are put in preorder:
+        // a node comes after the nodes of the keys before its first key, and after its ancestors
+        int capacity = 2 * keys.size() + 1;
+        int[] nodeDepth = new int[capacity], nodeKey = new int[capacity], nodeParent = new int[capacity], nodeTerminal = new int[capacity];
+        nodeParent[0] = -1;
+        nodeTerminal[0] = -1;
+        int nodes = 1;
+
+        int[] path = new int[16];
+        int top = 0;
+        for (int key = 0; key < keys.size(); key++) {
+            int keyLength = keyLength(key);
+            int common = key == 0 ? 0 : commonPrefix(key - 1, key);
+
+            int popped = -1;
+            while (nodeDepth[path[top]] > common) {
+                popped = path[top--];
+            }
+
+            if(nodeDepth[path[top]] < common) {
+                nodeDepth[nodes] = common;
+                nodeKey[nodes] = nodeKey[popped];
+                nodeParent[nodes] = path[top];
+                nodeTerminal[nodes] = -1;
+                nodeParent[popped] = nodes;
+                if(++top == path.length)
+                    path = Arrays.copyOf(path, top * 2);
+                path[top] = nodes++;
+            }
+
+            if(keyLength == common) {
+                nodeTerminal[path[top]] = key;
+                continue;
+            }
+
+            nodeDepth[nodes] = keyLength;
+            nodeKey[nodes] = key;
+            nodeParent[nodes] = path[top];
+            nodeTerminal[nodes] = key;
+            if(++top == path.length)
+                path = Arrays.copyOf(path, top * 2);
+            path[top] = nodes++;
+        }
+
+        int[] preorder = preorder(nodeKey, nodeDepth, nodes, keys.size());
+        int[] rank = new int[nodes];
+        for (int n = 0; n < nodes; n++) {
+            rank[preorder[n]] = n;
+        }
+
+        this.depth = new int[nodes];
+        this.parentDepth = new int[nodes];
+        this.keyOf = new int[nodes];
+        this.terminal = new int[nodes];
+        this.subtreeEnd = new int[nodes];
+        this.minLength = new int[nodes];
+        this.maxLength = new int[nodes];
+        this.minPosition = new int[nodes];
+        int[] parent = new int[nodes];
+        for (int n = 0; n < nodes; n++) {
+            int old = preorder[n];
+            depth[n] = nodeDepth[old];
+            keyOf[n] = nodeKey[old];
+            terminal[n] = nodeTerminal[old];
+            parent[n] = nodeParent[old] == -1 ? -1 : rank[nodeParent[old]];
+            parentDepth[n] = nodeParent[old] == -1 ? 0 : nodeDepth[nodeParent[old]];
+            subtreeEnd[n] = n + 1;
+            minLength[n] = terminal[n] != -1 ? depth[n] : Integer.MAX_VALUE;
+            maxLength[n] = terminal[n] != -1 ? depth[n] : 0;
+            minPosition[n] = terminal[n] != -1 ? postings[postingStarts[terminal[n]]] : Integer.MAX_VALUE;
+        }
+        for (int n = nodes - 1; n > 0; n--) {
+            subtreeEnd[parent[n]] = Math.max(subtreeEnd[parent[n]], subtreeEnd[n]);
+            minLength[parent[n]] = Math.min(minLength[parent[n]], minLength[n]);
+            maxLength[parent[n]] = Math.max(maxLength[parent[n]], maxLength[n]);
+            minPosition[parent[n]] = Math.min(minPosition[parent[n]], minPosition[n]);
+        }
+    }
+
+    /**
+     *  Construct a new instance of {@code PrefixTreeIndex}
+     *
+     * @param strings
+     *  The set of {@code String} objects
+     */
+    public PrefixTreeIndex(Collection<String> strings) {
+        this(strings.toArray(new String[strings.size()]));
+    }
+
+    /**
+     *  Get the number of {@code String} objects in the index
+     *
+     * @return
+     *  The size of the set of {@code String} objects
+     */
+    public int size() {
+        return strings.length;
+    }
+
+    /**
+     *  Get an element of the index
+     *
+     * @param index
+     *  The position of the element
+     * @return
+     *  The {@code String} object at the given position, as it was given to the index
+     */
+    public String get(int index) {
+        return strings[index];
+    }
+
+    /**
+     *  Compare the {@code String} parameter to every element of the index in linear mode, and
+     *  returns the most similar {@code String}, or null if the greatest rate is lower
+     *  than {@code minRate}
+     *
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be returned
+     * @return
+     *  The most similar {@code String} object in the index, or null if nothing was found
+     * @see Compare#similarString(String[], String, int, boolean)
+     */
+    public String similarString(String string, int minRate) {
+        if(string == null || strings.length == 0 || string.length() == 0) {
+            return null;
+        }
+
+        CompareMetrics metrics = Compare.metrics();
+        long start = metrics != null ? System.nanoTime() : 0L;
+
+        int index = similarIndex(new Walk(string), minRate);
+
+        if(metrics != null)
+            metrics.query(System.nanoTime() - start, index == -1 ? 0 : 1);
+        return index == -1 ? null : strings[index];
+    }
+
+    /**
+     *  Compare the {@code String} parameter to every element of the index in linear mode, and
+     *  returns the most similar {@code String}
+     *
+     * @param string
+     *  The {@code String} object used as comparison
+     * @return
+     *  The most similar {@code String} object in the index, or null if nothing was found
+     * @see Compare#similarString(String[], String, boolean)
+     */
+    public String similarString(String string) {
+        return similarString(string, Compare.LOWER_RATE);
+    }
+
+    /**
+     *  Compare the {@code String} parameter with every element of the index in linear mode, and
+     *  returns every similar {@code String} object with a rate greater than {@code minRate}
+     *
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be considered similar
+     * @return
+     *  A list containing all of the similar {@code String} objects
+     * @see Compare#similarStrings(String[], String, int, boolean)
+     */
+    public List<String> similarStrings(String string, int minRate) {
+        List<String> list = new ArrayList<>();
+        if(string == null || strings.length == 0 || string.length() == 0) {
+            return list;
+        }
+
+        CompareMetrics metrics = Compare.metrics();
+        long start = metrics != null ? System.nanoTime() : 0L;
+
+        long[] found = collect(new Walk(string), minRate);
+        for (long f : found) {
+            list.add(strings[(int) (f >>> 32)]);
+        }
+
+        if(metrics != null)
+            metrics.query(System.nanoTime() - start, found.length);
+        return list;
+    }
+
+    /**
+     *  Returns a compare rate in linear mode for every {@code String} object in the index (if the rate
+     *  is equal or greater to {@code minRate}) in primitive arrays, without a {@code CompareInfo} object for every element.
+     *  This is not sorted!
+     *
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be considered similar
+     * @return
+     *  The positions in the index and the rates of the same elements of {@link #compareInfo(String, int)}
+     * @see Compare#compareResults(String[], String, int, boolean)
+     */
+    public CompareResults compareResults(String string, int minRate) {
+        if(string == null || strings.length == 0 || string.length() == 0) {
+            return new CompareResults(this::get, 0);
+        }
+
+        CompareMetrics metrics = Compare.metrics();
+        long start = metrics != null ? System.nanoTime() : 0L;
+
+        long[] found = minRate == -1 ? rateAll(new Walk(string)) : collect(new Walk(string), minRate);
+
+        if(metrics != null)
+            metrics.query(System.nanoTime() - start, found.length);
+        return new CompareResults(this::get, found);
+    }
+
+    /**
+     *  Returns a compare rate in linear mode for every {@code String} object in the index (if the rate
+     *  is equal or greater to {@code minRate}
+     *  This is not sorted!
+     *
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be considered similar
+     * @return
+     *  A list containing the {@code CompareInfo} objects for every
+     *  {@code String} object in the index
+     * @see Compare#compareInfo(String[], String, int, boolean)
+     */
+    public List<CompareInfo> compareInfo(String string, int minRate) {
+        return new ArrayList<>(compareResults(string, minRate).asList());
+    }
+
+    /**
+     *  Returns a compare rate in linear mode for every {@code String} object in the index
+     *  This is not sorted!
+     *
+     * @param string
+     *  The {@code String} object used as comparison
+     * @return
+     *  A list containing the rates for every {@code String} object in the index
+     * @see Compare#compareInfo(String[], String, boolean)
+     */
+    public List<CompareInfo> compareInfo(String string) {
+        return compareInfo(string, Compare.LOWER_RATE);
+    }
+
+    /**
+     *  Returns the {@code k} {@code String} objects in the index with the greatest compare rate in linear mode
+     *  (if the rate is equal or greater to {@code minRate}), sorted from the most similar.
+     *  Elements with the same rate keep the order of the index
+     *
+     * @param string
+     *  The {@code String} object used as comparison
+     * @param k
+     *  The greatest number of {@code CompareInfo} objects to return
+     * @param minRate
+     *  The lowest compare rate that a {@code String} object has to get to be considered similar
+     * @return
+     *  A sorted list containing at most {@code k} {@code CompareInfo} objects
+     * @see Compare#topK(String[], String, int, int, boolean)
+     */
+    public List<CompareInfo> topK(String string, int k, int minRate) {
+        if(string == null || strings.length == 0 || string.length() == 0 || k <= 0) {
+            return new ArrayList<>();
+        }
+
+        CompareMetrics metrics = Compare.metrics();
+        long start = metrics != null ? System.nanoTime() : 0L;
+
+        long[] found = topK(new Walk(string), new RateHeap(Math.min(k, strings.length)), minRate);
+
+        if(metrics != null)
+            metrics.query(System.nanoTime() - start, found.length);
+        return new ArrayList<>(new CompareResults(this::get, found).asList());
+    }
+
+    /**
+     *  Finds the position of the most similar element, as {@link GroupedIndex} does
+     */
+    private int similarIndex(Walk walk, int minRate) {
+        int greaterIndex = Integer.MAX_VALUE;
+        int maxRate = Compare.LOWER_RATE, maxIndex = -1;
+        if(empty.length > 0 && maxRate < 0) {
+            maxRate = 0;
+            maxIndex = empty[0];
+        }
+
+        // the key reached following the query down the tree is likely a good match: its rate lets the walk skip more
+        int seed = follow(walk.query);
+        if(seed != -1) {
+            int rate = Compare.linearRate(chars, keyOffsets[seed], keyLength(seed), walk.query, 0, walk.query.length);
+            int count = postings[postingStarts[seed]];
+            if(rate == Compare.GREATER_RATE) {
+                greaterIndex = count;
+            } else if(maxRate < rate || (maxRate == rate && count < maxIndex)) {
+                maxRate = rate;
+                maxIndex = count;
+            }
+        }
+
+        for (int node = 0; node < depth.length; ) {
+            int bound = walk.enter(node);
+            if(minPosition[node] >= greaterIndex || (bound < Compare.GREATER_RATE && (greaterIndex != Integer.MAX_VALUE ||
+                    bound < minRate || bound < maxRate || (bound == maxRate && minPosition[node] > maxIndex)))) {
+                node = subtreeEnd[node];
+                continue;
+            }
+
+            int key = terminal[node];
+            if(key != -1) {
+                int rate = walk.rate(node);
+                int count = postings[postingStarts[key]];
+                if(rate == Compare.GREATER_RATE) {
+                    greaterIndex = Math.min(greaterIndex, count);
+                } else if(maxRate < rate || (maxRate == rate && count < maxIndex)) {
+                    maxRate = rate;
+                    maxIndex = count;
+                }
+            }
+            node++;
+        }
+
+        if(greaterIndex != Integer.MAX_VALUE) {
+            return greaterIndex;
+        }
+
+        if (maxRate < minRate) {
+            return -1;
+        }
+
+        return maxIndex;
+    }
+
+    /**
+     *  Finds the elements with the greatest compare rate, as {@link GroupedIndex} does
+     */
+    private long[] topK(Walk walk, RateHeap heap, int minRate) {
+        if(0 >= minRate) {
+            for (int e : empty) {
+                heap.offer(0, e);
+            }
+        }
+
+        for (int node = 0; node < depth.length; ) {
+            int bound = walk.enter(node);
+            if(bound < minRate || !heap.accepts(bound, minPosition[node])) {
+                node = subtreeEnd[node];
+                continue;
+            }
+
+            int key = terminal[node];
+            if(key != -1) {
+                int rate = walk.rate(node);
+                if(rate >= minRate) {
+                    for (int p = postingStarts[key]; p < postingStarts[key + 1]; p++) {
+                        heap.offer(rate, postings[p]);
+                    }
+                }
+            }
+            node++;
+        }
+        return heap.toArray();
+    }
+
+    /**
+     *  Finds every element with a compare rate equal or greater to {@code minRate}
+     *
+     * @return
+     *  The position of every element found in the high 32 bits and its rate in the low 32 bits,
+     *  sorted by position
+     */
+    private long[] collect(Walk walk, int minRate) {
+        long[] found = new long[16];
+        int size = 0;
+        if(0 >= minRate) {
+            for (int e : empty) {
+                if(size == found.length)
+                    found = Arrays.copyOf(found, size * 2);
+                found[size++] = (long) e << 32;
+            }
+        }
+
+        for (int node = 0; node < depth.length; ) {
+            if(walk.enter(node) < minRate) {
+                node = subtreeEnd[node];
+                continue;
+            }
+
+            int key = terminal[node];
+            if(key != -1) {
+                int rate = walk.rate(node);
+                if(rate >= minRate) {
+                    for (int p = postingStarts[key]; p < postingStarts[key + 1]; p++) {
+                        if(size == found.length)
+                            found = Arrays.copyOf(found, size * 2);
+                        found[size++] = ((long) postings[p] << 32) | (rate & 0xFFFFFFFFL);
+                    }
+                }
+            }
+            node++;
+        }
+
+        found = Arrays.copyOf(found, size);
+        Arrays.sort(found);
+        return found;
+    }
+
+    /**
+     *  Gives the compare rate of every element
+     *
+     * @return
+     *  The position of every element in the high 32 bits and its rate in the low 32 bits,
+     *  sorted by position
+     */
+    private long[] rateAll(Walk walk) {
+        long[] found = new long[strings.length];
+        for (int e : empty) {
+            found[e] = (long) e << 32;
+        }
+
+        for (int node = 0; node < depth.length; node++) {
+            walk.enter(node);
+
+            int key = terminal[node];
+            if(key != -1) {
+                int rate = walk.rate(node);
+                for (int p = postingStarts[key]; p < postingStarts[key + 1]; p++) {
+                    found[postings[p]] = ((long) postings[p] << 32) | (rate & 0xFFFFFFFFL);
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     *  Goes down the tree along the chars of a query, as long as a child matches them
+     *
+     * @return
+     *  The first key of the last node reached, or -1 if there are no keys
+     */
+    private int follow(char[] query) {
+        if(keyOffsets.length == 1)
+            return -1;
+
+        int node = 0;
+        while (depth[node] < query.length) {
+            int d = depth[node];
+            int child = node + 1;
+            while (child < subtreeEnd[node] && chars[keyOffsets[keyOf[child]] + d] != query[d]) {
+                child = subtreeEnd[child];
+            }
+            if(child == subtreeEnd[node])
+                break;
+
+            node = child;
+            int offset = keyOffsets[keyOf[node]];
+            for (int i = d + 1; i < Math.min(depth[node], query.length); i++) {
+                if(chars[offset + i] != query[i])
+                    return keyOf[node];
+            }
+        }
+        return keyOf[node];
+    }
+
+    private int keyLength(int key) {
+        return keyOffsets[key + 1] - keyOffsets[key];
+    }
+
+    private int commonPrefix(int key1, int key2) {
+        int length = Math.min(keyLength(key1), keyLength(key2));
+        int common = 0;
+        while (common < length && chars[keyOffsets[key1] + common] == chars[keyOffsets[key2] + common]) {
+            common++;
+        }
+        return common;
+    }
+
+    /**
+     *  Sorts the nodes by their first key, then by depth: the first key of a subtree comes before the keys
+     *  of the next subtrees, and the nodes on the path of a key are sorted from the root
+     *
+     * @return
+     *  The nodes in preorder
+     */
+    private static int[] preorder(int[] nodeKey, int[] nodeDepth, int nodes, int keys) {
+        if(keys == 0)
+            return new int[] {0};
+
+        int[] starts = new int[keys + 1];
+        for (int n = 0; n < nodes; n++) {
+            starts[nodeKey[n] + 1]++;
+        }
+        for (int key = 0; key < keys; key++) {
+            starts[key + 1] += starts[key];
+        }
+
+        int[] preorder = new int[nodes];
+        int[] ends = Arrays.copyOf(starts, keys);
+        for (int n = 0; n < nodes; n++) {
+            int key = nodeKey[n];
+            // a key has a few nodes on its path, sorted by insertion
+            int at = ends[key]++;
+            while (at > starts[key] && nodeDepth[preorder[at - 1]] > nodeDepth[n]) {
+                preorder[at] = preorder[at - 1];
+                at--;
+            }
+            preorder[at] = n;
+        }
+        return preorder;
+    }
+
+    /**
+     *  The state of a query going down the tree. For every depth on the path of the current node it holds
+     *  the steps of the keys that are not longer than the query (their chars compared to the query), and the
+     *  steps of the longer keys (the chars of the query compared to them), with the points earned
+     */
+    private final class Walk {
+
+        final char[] query;
+
+        final int[] shorterStates;
+        final float[] shorterSteps;
+        final int[] longerStates;
+        final float[] longerSteps;
+
+        Walk(String string) {
+            this.query = Compare.prepareToCompare(string).toCharArray();
+            this.shorterStates = new int[query.length + 2];
+            this.shorterSteps = new float[query.length + 2];
+            this.longerStates = new int[query.length + 2];
+            this.longerSteps = new float[query.length + 2];
+        }
+
+        /**
+         *  Compares the chars of a node, from the depth of its parent.
+         *  The steps of its parent have to be computed
+         *
+         * @param node
+         *  The node, its ancestors were entered before it
+         * @return
+         *  A rate that is equal or greater than the compare rate of every key in the subtree.
+         *  It is equal or greater than {@link Compare#GREATER_RATE} when a key could get it
+         */
+        int enter(int node) {
+            int length = query.length;
+            int offset = keyOffsets[keyOf[node]];
+            int d = depth[node];
+
+            // the steps of a side are computed only if the subtree has keys on that side, and so its ancestors
+            boolean shorter = minLength[node] <= length, longer = maxLength[node] > length;
+            for (int i = parentDepth[node] + 1, end = Math.min(d, length + 1); i <= end; i++) {
+                if(shorter && i <= length) {
+                    int state = Compare.step(shorterStates[i - 1], chars[offset + i - 1], query, i - 1, i == 1, i < length);
+                    shorterStates[i] = state;
+                    shorterSteps[i] = shorterSteps[i - 1] + Compare.stepPoints(state);
+                }
+
+                // the step of a char of the query needs the char of the key after its position
+                if(longer && i >= 2) {
+                    int state = Compare.step(longerStates[i - 1], query[i - 2], chars, offset + i - 2, i == 2, true);
+                    longerStates[i] = state;
+                    longerSteps[i] = longerSteps[i - 1] + Compare.stepPoints(state);
+                }
+            }
+
+            int bound = Integer.MIN_VALUE;
+            if(shorter) {
+                float n = shorterSteps[d] + (length - d) * Compare.COMPARE_BASE_VALUE;
+                bound = shorterSteps[d] == d * Compare.COMPARE_BASE_VALUE ? Math.max((int) n, Compare.GREATER_RATE) : (int) n;
+            }
+
+            if(longer) {
+                int at = Math.min(d, length + 1);
+                int done = Math.max(at - 1, 0);
+                float n = longerSteps[at] + (length - done) * Compare.COMPARE_BASE_VALUE;
+                n -= ((float) (Math.max(d, length + 1) - length)) * Compare.LENGTH_SCALE;
+                bound = Math.max(bound, n >= length * Compare.COMPARE_BASE_VALUE ? Math.max((int) n, Compare.GREATER_RATE) : (int) n);
+            }
+            return bound;
+        }
+
+        /**
+         *  Gives the compare rate of the key of a node, after the node was entered
+         *
+         * @param node
+         *  A node with a key
+         * @return
+         *  The same compare rate of {@link Compare#linearRate(char[], int, int, char[], int, int)}
+         */
+        int rate(int node) {
+            int d = depth[node];
+            int length = query.length;
+            return d <= length ? Compare.linearRate(shorterSteps[d], length, d) :
+                    Compare.linearRate(longerSteps[length + 1], d, length);
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package ohi.andre.comparestring;
+
+import java.text.Normalizer;
+import java.text.Normalizer.Form;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ *  Prepares {@code String} objects to be compared: accents and spaces are removed, and
+ *  letters are turned to lower case, with the same result of {@link Compare#removeAccents(String)},
+ *  {@link Compare#removeSpaces(String)} and {@link String#toLowerCase()} applied in this order.
+ *  <p>
+ *  ASCII chars and the accented latin letters that decompose to an ASCII letter followed by
+ *  combining diacritical marks are prepared in a single loop, with a table computed once.
+ *  Any other char makes the whole {@code String} go through {@link Normalizer} and the cached patterns.
+ *  <p>
+ *  An instance keeps the prepared chars in a buffer reused by the following calls to {@link #prepare(String)}
+ */
+final class Preparer {
+
+    private static final Pattern SPACES = Pattern.compile("\\s");
+    private static final Pattern ACCENTS = Pattern.compile("\\p{InCombiningDiacriticalMarks}+");
+    private static final String EMPTYSTRING = "";
+
+    static final int FOLD_ACCENTS = 1;
+    static final int REMOVE_SPACES = 2;
+    static final int LOWER_CASE = 4;
+    static final int ALL = FOLD_ACCENTS | REMOVE_SPACES | LOWER_CASE;
+
+    private static final char ASCII_LIMIT = 0x80;
+    private static final char FOLDED_LIMIT = 0x250;
+
+    /**
+     * The ASCII letter that every char from ASCII_LIMIT to FOLDED_LIMIT becomes
+     * without accents, or 0 if it does not become a single ASCII letter
+     */
+    private static final char[] FOLDED = new char[FOLDED_LIMIT];
+
+    static {
+        for (char c = ASCII_LIMIT; c < FOLDED_LIMIT; c++) {
+            String folded = ACCENTS.matcher(Normalizer.normalize(String.valueOf(c), Form.NFD)).replaceAll(EMPTYSTRING);
+            if(folded.length() == 1 && isAsciiLetter(folded.charAt(0)))
+                FOLDED[c] = folded.charAt(0);
+        }
+    }
+
+    /**
+     * The prepared chars, from 0 to length
+     */
+    char[] chars = new char[16];
+    int length;
+
+    /**
+     *  Prepares a {@code String} object into the buffer of this instance
+     *
+     * @param s
+     *  The {@code String} object to prepare
+     * @return
+     *  This instance
+     */
+    Preparer prepare(String s) {
+        if(chars.length < s.length())
+            chars = new char[Math.max(s.length(), chars.length * 2)];
+
+        boolean turkic = isTurkic();
+        length = 0;
+        for (int count = 0; count < s.length(); count++) {
+            char c = s.charAt(count);
+
+            if(c >= ASCII_LIMIT) {
+                c = c < FOLDED_LIMIT ? FOLDED[c] : 0;
+                if(c == 0) {
+                    return prepareSlow(s);
+                }
+            } else if(isSpace(c)) {
+                continue;
+            }
+
+            if(c >= 'A' && c <= 'Z') {
+                if(turkic && c == 'I')
+                    return prepareSlow(s);
+                c += 'a' - 'A';
+            }
+            chars[length++] = c;
+        }
+        return this;
+    }
+
+    private Preparer prepareSlow(String s) {
+        return set(removeSpaces(removeAccents(s)).toLowerCase());
+    }
+
+    /**
+     *  Prepares a {@code String} object into the buffer of this instance, doing only some of the changes
+     *  of {@link #prepare(String)}: the result is the same of the chosen methods applied in the same order
+     *
+     * @param s
+     *  The {@code String} object to prepare
+     * @param flags
+     *  A combination of {@link #FOLD_ACCENTS}, {@link #REMOVE_SPACES} and {@link #LOWER_CASE}
+     * @return
+     *  This instance
+     */
+    Preparer prepare(String s, int flags) {
+        if(flags == ALL)
+            return prepare(s);
+
+        if(chars.length < s.length())
+            chars = new char[Math.max(s.length(), chars.length * 2)];
+
+        boolean accents = (flags & FOLD_ACCENTS) != 0, spaces = (flags & REMOVE_SPACES) != 0,
+                lowerCase = (flags & LOWER_CASE) != 0, turkic = lowerCase && isTurkic();
+        length = 0;
+        for (int count = 0; count < s.length(); count++) {
+            char c = s.charAt(count);
+
+            if(c >= ASCII_LIMIT) {
+                if(accents) {
+                    c = c < FOLDED_LIMIT ? FOLDED[c] : 0;
+                    if(c == 0)
+                        return prepareSlow(s, flags);
+                } else if(lowerCase) {
+                    return prepareSlow(s, flags);
+                }
+            } else if(spaces && isSpace(c)) {
+                continue;
+            }
+
+            if(lowerCase && c >= 'A' && c <= 'Z') {
+                if(turkic && c == 'I')
+                    return prepareSlow(s, flags);
+                c += 'a' - 'A';
+            }
+            chars[length++] = c;
+        }
+        return this;
+    }
+
+    private Preparer prepareSlow(String s, int flags) {
+        if((flags & FOLD_ACCENTS) != 0)
+            s = removeAccents(s);
+        if((flags & REMOVE_SPACES) != 0)
+            s = removeSpaces(s);
+        if((flags & LOWER_CASE) != 0)
+            s = s.toLowerCase();
+        return set(s);
+    }
+
+    /**
+     *  Copies a {@code String} object that is already prepared into the buffer of this instance
+     *
+     * @param prepared
+     *  The prepared {@code String} object
+     * @return
+     *  This instance
+     */
+    Preparer set(String prepared) {
+        if(chars.length < prepared.length())
+            chars = new char[prepared.length()];
+
+        prepared.getChars(0, prepared.length(), chars, 0);
+        length = prepared.length();
+        return this;
+    }
+
+    /**
+     *  Prepares a {@code String} object to be compared
+     *
+     * @param s
+     * @return
+     *  A lower case {@code String} object without spaces and accents
+     */
+    static String prepareToCompare(String s) {
+        Preparer preparer = new Preparer();
+        preparer.prepare(s);
+        return new String(preparer.chars, 0, preparer.length);
+    }
+
+    /**
+     *  Remove all of the spaces from a {@code String} object
+     *
+     * @param string
+     * @return
+     *  A {@code String} object that does not contain spaces
+     */
+    static String removeSpaces(String string) {
+        for (int count = 0; count < string.length(); count++) {
+            if(isSpace(string.charAt(count)))
+                return SPACES.matcher(string).replaceAll(EMPTYSTRING);
+        }
+        return string;
+    }
+
+    /**
+     *  Replace accented characters in a {@code String} object with
+     *  their no-accented representation
+     *
+     * @param s
+     * @return
+     *  A {@code String} object that does not contain accented characters
+     */
+    static String removeAccents(String s) {
+        char[] folded = null;
+        for (int count = 0; count < s.length(); count++) {
+            char c = s.charAt(count);
+            if(c < ASCII_LIMIT)
+                continue;
+
+            if(c >= FOLDED_LIMIT || FOLDED[c] == 0)
+                return ACCENTS.matcher(Normalizer.normalize(s, Form.NFD)).replaceAll(EMPTYSTRING);
+
+            if(folded == null)
+                folded = s.toCharArray();
+            folded[count] = FOLDED[c];
+        }
+        return folded == null ? s : new String(folded);
+    }
+
+    /**
+     * The chars matched by \s
+     */
+    static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static boolean isAsciiLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    /**
+     *  Tells if {@link String#toLowerCase()} turns a char to the same char of {@link Character#toLowerCase(char)}
+     *  in any context, when the default locale has no special casing
+     *
+     * @param c
+     * @return
+     *  False for surrogates, for the capital dotted I, that becomes two chars, and for the capital sigma,
+     *  that depends on the chars around it
+     */
+    static boolean hasSimpleLowerCase(char c) {
+        return !Character.isSurrogate(c) && c != '\u0130' && c != '\u03A3';
+    }
+
+    /**
+     *  Tells if {@link String#toLowerCase()} follows special rules in the default locale
+     *
+     * @return
+     *  True for turkish, azeri and lithuanian
+     */
+    static boolean hasSpecialCasing() {
+        String language = Locale.getDefault().getLanguage();
+        return "tr".equals(language) || "az".equals(language) || "lt".equals(language);
+    }
+
+    /**
+     * In turkish and azeri {@link String#toLowerCase()} turns 'I' to a dotless i
+     */
+    private static boolean isTurkic() {
+        String language = Locale.getDefault().getLanguage();
+        return "tr".equals(language) || "az".equals(language);
+    }
+}
@@ -0,0 +1,180 @@
+package ohi.andre.comparestring;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import ohi.andre.comparestring.Compare.CompareInfo;
+
+/**
+ *  Keeps the {@code capacity} best rates offered to it, with the position of the
+ *  element that got them. Rates and positions are stored in two {@code int} arrays
+ *  ordered as a min-heap, so the worst rate kept is always at the root.
+ *  A greater rate is better, between equal rates the lower position is better
+ */
+final class RateHeap {
+
+    private final int[] rates;
+    private final int[] indexes;
+    private int size;
+
+    /**
+     *  Construct a new instance of {@code RateHeap}
+     *
+     * @param capacity
+     *  The number of rates to keep
+     */
+    RateHeap(int capacity) {
+        this.rates = new int[capacity];
+        this.indexes = new int[capacity];
+    }
+
+    /**
+     *  Offers a rate to the heap. It is kept if the heap is not full, or if it is
+     *  better than the worst rate kept, which is discarded
+     *
+     * @param rate
+     *  The compare rate
+     * @param index
+     *  The position of the element that got the rate
+     */
+    void offer(int rate, int index) {
+        if(size < rates.length) {
+            rates[size] = rate;
+            indexes[size] = index;
+            siftUp(size++);
+        } else if(size > 0 && worse(rates[0], indexes[0], rate, index)) {
+            rates[0] = rate;
+            indexes[0] = index;
+            siftDown(0, size);
+        }
+    }
+
+    /**
+     *  Tells if a rate would be kept by {@link #offer(int, int)}
+     *
+     * @param rate
+     *  The compare rate
+     * @param index
+     *  The position of the element that got the rate
+     * @return
+     *  True if the rate would be kept
+     */
+    boolean accepts(int rate, int index) {
+        return size < rates.length || (size > 0 && worse(rates[0], indexes[0], rate, index));
+    }
+
+    /**
+     *  Get the number of rates kept
+     *
+     * @return
+     *  The number of rates kept
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     *  Builds the {@code CompareInfo} objects of the rates kept, from the best to the worst.
+     *  The heap is emptied
+     *
+     * @param strings
+     *  The {@code String} objects the positions refer to
+     * @return
+     *  A sorted list containing a {@code CompareInfo} object for every rate kept
+     */
+    List<CompareInfo> toCompareInfo(String[] strings) {
+        int count = sort();
+        List<CompareInfo> infos = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            infos.add(new CompareInfo(strings[indexes[i]], rates[i]));
+        }
+        return infos;
+    }
+
+    /**
+     *  Get the rates kept, from the best to the worst. The heap is emptied
+     *
+     * @return
+     *  The position of every rate kept in the high 32 bits and the rate in the low 32 bits
+     */
+    long[] toArray() {
+        int count = sort();
+        long[] sorted = new long[count];
+        for (int i = 0; i < count; i++) {
+            sorted[i] = ((long) indexes[i] << 32) | (rates[i] & 0xFFFFFFFFL);
+        }
+        return sorted;
+    }
+
+    /**
+     *  Get the rates kept, from the best to the worst. The heap is not changed
+     *
+     * @return
+     *  The position of every rate kept in the high 32 bits and the rate in the low 32 bits
+     */
+    long[] peek() {
+        RateHeap copy = new RateHeap(rates.length);
+        System.arraycopy(rates, 0, copy.rates, 0, size);
+        System.arraycopy(indexes, 0, copy.indexes, 0, size);
+        copy.size = size;
+        return copy.toArray();
+    }
+
+    /**
+     *  Sorts the rates kept from the best to the worst. The heap is emptied
+     *
+     * @return
+     *  The number of sorted rates
+     */
+    private int sort() {
+        int count = size;
+        for (int end = size - 1; end > 0; end--) {
+            swap(0, end);
+            siftDown(0, end);
+        }
+        size = 0;
+        return count;
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if(!worse(rates[i], indexes[i], rates[parent], indexes[parent]))
+                return;
+
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i, int end) {
+        while (true) {
+            int child = 2 * i + 1;
+            if(child >= end)
+                return;
+
+            if(child + 1 < end && worse(rates[child + 1], indexes[child + 1], rates[child], indexes[child]))
+                child++;
+
+            if(!worse(rates[child], indexes[child], rates[i], indexes[i]))
+                return;
+
+            swap(i, child);
+            i = child;
+        }
+    }
+
+    private void swap(int i, int j) {
+        int rate = rates[i];
+        rates[i] = rates[j];
+        rates[j] = rate;
+
+        int index = indexes[i];
+        indexes[i] = indexes[j];
+        indexes[j] = index;
+    }
+
+    private static boolean worse(int rate1, int index1, int rate2, int index2) {
+        return rate1 < rate2 || (rate1 == rate2 && index1 > index2);
+    }
+}
@@ -0,0 +1,146 @@
+package ohi.andre.comparestring;
+
+/**
+ *  The elements of a set, an array of {@code String} objects or a {@link CompareIndex}, with their compare rate
+ *  to a prepared query. It is used by the searches that split the set in chunks, whatever the storage of the elements
+ */
+abstract class Scorer {
+
+    /**
+     *  Get a {@code Scorer} of an array. The elements are prepared every time they are compared,
+     *  in the {@link Preparer} of the thread
+     *
+     * @param strings
+     *  The set of {@code String} objects, it is not copied
+     * @return
+     *  The {@code Scorer} of the array
+     */
+    static Scorer of(String[] strings) {
+        return new ArrayScorer(strings);
+    }
+
+    /**
+     *  Get a {@code Scorer} of an index
+     *
+     * @param index
+     *  The prepared set of {@code String} objects
+     * @return
+     *  The {@code Scorer} of the index
+     */
+    static Scorer of(CompareIndex index) {
+        return new IndexScorer(index);
+    }
+
+    /**
+     *  Get the number of elements
+     *
+     * @return
+     *  The number of elements
+     */
+    abstract int size();
+
+    /**
+     *  Get an element
+     *
+     * @param index
+     *  The position of the element
+     * @return
+     *  The {@code String} object at the given position
+     */
+    abstract String get(int index);
+
+    /**
+     *  Gives the compare rate of an element
+     *
+     * @param index
+     *  The position of the element
+     * @param query
+     *  The prepared {@code String} object used as comparison
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  The same compare rate that {@link Compare} gives to the element
+     */
+    abstract int rate(int index, char[] query, boolean scrollCompare);
+
+    /**
+     *  Gives a rate that is equal or greater than the compare rate of an element
+     *
+     * @param index
+     *  The position of the element
+     * @param query
+     *  The prepared {@code String} object used as comparison
+     * @param queryMask
+     *  The mask of the chars of the query
+     * @param scrollCompare
+     *  Use scrolling compare mode
+     * @return
+     *  An upper bound of the compare rate of the element
+     * @see Compare#rateBound(int, long, int, long, boolean)
+     */
+    abstract int bound(int index, char[] query, long queryMask, boolean scrollCompare);
+
+    private static class ArrayScorer extends Scorer {
+
+        private final String[] strings;
+
+        ArrayScorer(String[] strings) {
+            this.strings = strings;
+        }
+
+        @Override
+        int size() {
+            return strings.length;
+        }
+
+        @Override
+        String get(int index) {
+            return strings[index];
+        }
+
+        @Override
+        int rate(int index, char[] query, boolean scrollCompare) {
+            return Compare.rate(strings[index], query, scrollCompare);
+        }
+
+        @Override
+        int bound(int index, char[] query, long queryMask, boolean scrollCompare) {
+            // the chars of an element are not known before it is prepared
+            String current = strings[index];
+            return current == null || current.length() == 0 ? 0 : Integer.MAX_VALUE;
+        }
+    }
+
+    private static class IndexScorer extends Scorer {
+
+        private final CompareIndex index;
+
+        IndexScorer(CompareIndex index) {
+            this.index = index;
+        }
+
+        @Override
+        int size() {
+            return index.size();
+        }
+
+        @Override
+        String get(int index) {
+            return this.index.get(index);
+        }
+
+        @Override
+        int rate(int index, char[] query, boolean scrollCompare) {
+            return this.index.rate(index, query, scrollCompare);
+        }
+
+        @Override
+        int bound(int index, char[] query, long queryMask, boolean scrollCompare) {
+            String current = this.index.get(index);
+            if(current == null || current.length() == 0)
+                return 0;
+
+            return Compare.rateBound(this.index.length(index), this.index.mask(index), query.length, queryMask, scrollCompare);
+        }
+    }
+}
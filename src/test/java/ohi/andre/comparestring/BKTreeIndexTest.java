@@ -0,0 +1,87 @@
+package ohi.andre.comparestring;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import ohi.andre.comparestring.Compare.CompareInfo;
+
+/**
+ *  Compares the searches of {@link BKTreeIndex} to the edit distance of every element, computed on the whole matrix
+ */
+public class BKTreeIndexTest {
+
+    private static final int SETS = 200;
+
+    @Test
+    public void searchesFindEveryElementWithinTheDistance() {
+        RandomStrings random = new RandomStrings(21);
+        for (int set = 0; set < SETS; set++) {
+            String[] strings = random.array(60);
+            for (boolean transpositions : new boolean[] {false, true}) {
+                BKTreeIndex index = new BKTreeIndex(strings, transpositions);
+                for (int q = 0; q < 6; q++) {
+                    String query = random.query(strings);
+                    int maxDistance = random.nextInt(5);
+                    List<CompareInfo> expected = closest(strings, query, maxDistance, transpositions);
+                    String message = query + " " + maxDistance + " " + transpositions;
+
+                    assertEquals(message, BruteForce.toString(expected), BruteForce.toString(index.compareInfo(query, maxDistance)));
+                    List<String> expectedStrings = new ArrayList<>();
+                    for (CompareInfo info : expected)
+                        expectedStrings.add(info.s);
+                    assertEquals(message, expectedStrings, index.similarStrings(query, maxDistance));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void transpositionsDontBreakTheTriangleInequality() {
+        // OSA gives 2 from "abc" to "ac", 1 from "ac" to "ca", but 3 from "abc" to "ca"
+        BKTreeIndex index = new BKTreeIndex(new String[] {"abc", "ac"}, true);
+        assertEquals(Arrays.asList("ac"), index.similarStrings("ca", 1));
+        assertEquals(Arrays.asList("ac", "abc"), index.similarStrings("ca", 3));
+    }
+
+    @Test
+    public void bandedDistanceStopsAfterTheLimit() {
+        RandomStrings random = new RandomStrings(22);
+        int[][] rows = new int[3][];
+        for (int count = 0; count < 20000; count++) {
+            char[] a = prepared(random.next(14));
+            char[] b = prepared(random.next(14));
+            int limit = random.nextInt(6);
+            for (boolean transpositions : new boolean[] {false, true}) {
+                int expected = BruteForce.distance(new String(a), new String(b), transpositions);
+                assertEquals(Math.min(expected, limit + 1),
+                        BKTreeIndex.distance(a, 0, a.length, b, 0, b.length, limit, transpositions, rows));
+            }
+        }
+    }
+
+    private static List<CompareInfo> closest(String[] strings, String query, int maxDistance, boolean transpositions) {
+        String preparedQuery = Compare.prepareToCompare(query);
+        List<CompareInfo> infos = new ArrayList<>();
+        for (String current : strings) {
+            if(current == null || current.length() == 0)
+                continue;
+
+            int distance = BruteForce.distance(Compare.prepareToCompare(current), preparedQuery, transpositions);
+            if(distance <= maxDistance)
+                infos.add(new CompareInfo(current, -distance));
+        }
+        // the rate is the distance with a negative sign, and the sort is stable
+        Collections.sort(infos);
+        return infos;
+    }
+
+    private static char[] prepared(String string) {
+        return string == null ? new char[0] : Compare.prepareToCompare(string).toCharArray();
+    }
+}
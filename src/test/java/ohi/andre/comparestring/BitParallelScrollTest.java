@@ -0,0 +1,59 @@
+package ohi.andre.comparestring;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ *  Compares the bit-parallel scrolling kernel to the scalar loop. Both kernels are called directly,
+ *  so they are compared whatever the value of {@link BitParallelScroll#KERNEL_PROPERTY}
+ */
+public class BitParallelScrollTest {
+
+    private static final int ITERATIONS = 20000;
+
+    @Test
+    public void bitParallelGivesTheRateOfTheScalarLoop() {
+        Random random = new Random(7);
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            int alphabet = 1 + random.nextInt(random.nextBoolean() ? 3 : 26);
+            int maxLength = 1 + random.nextInt(random.nextInt(10) == 0 ? 400 : 80);
+            int minLength = 1 + random.nextInt(maxLength);
+            char[] max = chars(random, maxLength + 5, alphabet);
+            char[] min = chars(random, minLength + 3, alphabet);
+            int maxOffset = random.nextInt(5), minOffset = random.nextInt(3);
+
+            float scalar = Compare.scalarScrollCompare(max, maxOffset, maxLength, min, minOffset, minLength);
+            float bitParallel = BitParallelScroll.scrollCompare(max, maxOffset, maxLength, min, minOffset, minLength);
+            assertEquals(maxLength + " " + minLength, Float.floatToIntBits(scalar), Float.floatToIntBits(bitParallel));
+        }
+    }
+
+    @Test
+    public void dispatchGivesTheRateOfTheScalarLoop() {
+        Random random = new Random(11);
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            int maxLength = 1 + random.nextInt(300);
+            int minLength = 1 + random.nextInt(Math.min(maxLength, 40));
+            char[] max = chars(random, maxLength, 4);
+            char[] min = chars(random, minLength, 4);
+            // a copy of a part of the longer sequence, so a window matches entirely
+            if(random.nextBoolean())
+                System.arraycopy(max, random.nextInt(maxLength - minLength + 1), min, 0, minLength);
+
+            float scalar = Compare.scalarScrollCompare(max, 0, maxLength, min, 0, minLength);
+            float dispatched = Compare.scrollCompare(max, 0, maxLength, min, 0, minLength);
+            assertEquals(Float.floatToIntBits(scalar), Float.floatToIntBits(dispatched));
+        }
+    }
+
+    private static char[] chars(Random random, int length, int alphabet) {
+        char[] chars = new char[length];
+        for (int count = 0; count < length; count++) {
+            chars[count] = (char) ((random.nextInt(20) == 0 ? 0x3c3 : 'a') + random.nextInt(alphabet));
+        }
+        return chars;
+    }
+}
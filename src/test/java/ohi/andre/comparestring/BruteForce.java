@@ -0,0 +1,99 @@
+package ohi.andre.comparestring;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import ohi.andre.comparestring.Compare.CompareInfo;
+
+/**
+ *  The expected results of the searches, found comparing the query to every element
+ *  with {@link Compare#linearComparison(String, String)} and {@link Compare#scrollComparison(String, String)}
+ */
+final class BruteForce {
+
+    private BruteForce() {}
+
+    static int rate(String element, String query, boolean scrollCompare) {
+        return scrollCompare ? Compare.scrollComparison(element, query) : Compare.linearComparison(element, query);
+    }
+
+    static String similarString(String[] strings, String query, int minRate, boolean scrollCompare) {
+        int maxRate = Compare.LOWER_RATE, maxIndex = -1;
+        for (int count = 0; count < strings.length; count++) {
+            int rate = rate(strings[count], query, scrollCompare);
+            if(rate == Compare.GREATER_RATE)
+                return strings[count];
+
+            if(maxRate < rate) {
+                maxRate = rate;
+                maxIndex = count;
+            }
+        }
+        return maxRate < minRate || maxIndex == -1 ? null : strings[maxIndex];
+    }
+
+    static List<String> similarStrings(String[] strings, String query, int minRate, boolean scrollCompare) {
+        List<String> list = new ArrayList<>();
+        for (String current : strings) {
+            if(rate(current, query, scrollCompare) >= minRate)
+                list.add(current);
+        }
+        return list;
+    }
+
+    static List<CompareInfo> compareInfo(String[] strings, String query, int minRate, boolean scrollCompare) {
+        List<CompareInfo> list = new ArrayList<>();
+        for (String current : strings) {
+            int rate = rate(current, query, scrollCompare);
+            if(minRate == -1 || rate >= minRate)
+                list.add(new CompareInfo(current, rate));
+        }
+        return list;
+    }
+
+    static List<CompareInfo> topK(String[] strings, String query, int k, int minRate, boolean scrollCompare) {
+        List<CompareInfo> list = new ArrayList<>();
+        for (String current : strings) {
+            int rate = rate(current, query, scrollCompare);
+            if(rate >= minRate)
+                list.add(new CompareInfo(current, rate));
+        }
+        // the sort is stable, so elements with the same rate keep the order of the set
+        Collections.sort(list);
+        return list.subList(0, Math.min(k, list.size()));
+    }
+
+    /**
+     *  The edit distance, computed on the whole matrix
+     */
+    static int distance(String a, String b, boolean transpositions) {
+        int[][] d = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++)
+            d[i][0] = i;
+        for (int j = 0; j <= b.length(); j++)
+            d[0][j] = j;
+
+        for (int i = 1; i <= a.length(); i++) {
+            for (int j = 1; j <= b.length(); j++) {
+                int value = Math.min(d[i - 1][j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1),
+                        Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1));
+                if(transpositions && i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1))
+                    value = Math.min(value, d[i - 2][j - 2] + 1);
+                d[i][j] = value;
+            }
+        }
+        return d[a.length()][b.length()];
+    }
+
+    /**
+     *  Writes a list of {@code CompareInfo} objects, which don't override equals
+     */
+    static String toString(List<CompareInfo> infos) {
+        StringBuilder builder = new StringBuilder();
+        for (CompareInfo info : infos) {
+            builder.append(info.s).append('=').append(info.rate).append(';');
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,64 @@
+package ohi.andre.comparestring;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ *  Compares the searches of {@link CompareIndex}, which skip the elements whose rate bound can't beat
+ *  the best rate, to the comparison of every element
+ */
+public class CompareIndexTest {
+
+    private static final int SETS = 300;
+
+    @Test
+    public void searchesGiveTheResultsOfEveryComparison() {
+        RandomStrings random = new RandomStrings(42);
+        for (int set = 0; set < SETS; set++) {
+            String[] strings = random.array(60);
+            CompareIndex index = new CompareIndex(strings);
+            for (int q = 0; q < 10; q++) {
+                String query = random.query(strings);
+                int minRate = random.minRate();
+                int k = 1 + random.nextInt(6);
+                for (boolean scrollCompare : new boolean[] {false, true}) {
+                    String message = query + " " + minRate + " " + scrollCompare;
+                    assertEquals(message, BruteForce.similarString(strings, query, minRate, scrollCompare),
+                            index.similarString(query, minRate, scrollCompare));
+                    assertEquals(message, BruteForce.similarStrings(strings, query, minRate, scrollCompare),
+                            index.similarStrings(query, minRate, scrollCompare));
+                    assertEquals(message, BruteForce.toString(BruteForce.compareInfo(strings, query, minRate, scrollCompare)),
+                            BruteForce.toString(index.compareInfo(query, minRate, scrollCompare)));
+                    assertEquals(message, BruteForce.toString(BruteForce.topK(strings, query, k, minRate, scrollCompare)),
+                            BruteForce.toString(index.topK(query, k, minRate, scrollCompare)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void rateBoundIsNotLowerThanTheRate() {
+        RandomStrings random = new RandomStrings(43);
+        for (int set = 0; set < SETS; set++) {
+            String[] strings = random.array(60);
+            CompareIndex index = new CompareIndex(strings);
+            char[] query = Compare.prepareToCompare(random.query(strings)).toCharArray();
+            if(query.length == 0)
+                continue;
+
+            long queryMask = Compare.charMask(query, 0, query.length);
+            for (int count = 0; count < index.size(); count++) {
+                if(index.length(count) == 0)
+                    continue;
+
+                for (boolean scrollCompare : new boolean[] {false, true}) {
+                    int bound = Compare.rateBound(index.length(count), index.mask(count), query.length, queryMask, scrollCompare);
+                    int rate = index.rate(count, query, scrollCompare);
+                    assertTrue(strings[count] + " " + rate + " > " + bound, rate <= bound);
+                }
+            }
+        }
+    }
+}
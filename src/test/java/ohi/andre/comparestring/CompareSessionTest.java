@@ -0,0 +1,62 @@
+package ohi.andre.comparestring;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+/**
+ *  Edits the query of a {@link CompareSession} at random, and compares every search to the comparison
+ *  of every element with the whole query
+ */
+public class CompareSessionTest {
+
+    @Test
+    public void editsGiveTheResultsOfTheWholeQuery() {
+        RandomStrings random = new RandomStrings(9);
+        for (int set = 0; set < 200; set++) {
+            String[] strings = random.array(60);
+            CompareIndex index = new CompareIndex(strings);
+            for (boolean scrollCompare : new boolean[] {false, true}) {
+                CompareSession session = new CompareSession(index, scrollCompare);
+                StringBuilder query = new StringBuilder();
+                for (int edit = 0; edit < 40; edit++) {
+                    int kind = random.nextInt(10);
+                    if(kind < 6) {
+                        String s = random.next(1);
+                        char c = s == null || s.length() == 0 ? 'a' : s.charAt(0);
+                        query.append(c);
+                        session.append(c);
+                    } else if(kind < 9) {
+                        if(query.length() > 0)
+                            query.setLength(query.length() - 1);
+                        session.backspace();
+                    } else {
+                        String s = random.next(10);
+                        query.setLength(0);
+                        query.append(s == null ? "" : s);
+                        session.set(s == null ? "" : s);
+                    }
+
+                    String current = query.toString();
+                    assertEquals(current, session.query());
+                    int minRate = random.minRate();
+                    if(current.length() == 0) {
+                        assertNull(session.similarString(minRate));
+                        continue;
+                    }
+
+                    String message = "'" + current + "' " + minRate + " " + scrollCompare;
+                    assertEquals(message, BruteForce.similarString(strings, current, minRate, scrollCompare),
+                            session.similarString(minRate));
+                    assertEquals(message, BruteForce.similarStrings(strings, current, minRate, scrollCompare),
+                            session.similarStrings(minRate));
+                    assertEquals(message, BruteForce.toString(BruteForce.compareInfo(strings, current, minRate, scrollCompare)),
+                            BruteForce.toString(session.compareInfo(minRate)));
+                    assertEquals(message, BruteForce.toString(BruteForce.topK(strings, current, 3, minRate, scrollCompare)),
+                            BruteForce.toString(session.topK(3, minRate)));
+                }
+            }
+        }
+    }
+}
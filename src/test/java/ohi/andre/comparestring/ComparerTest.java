@@ -0,0 +1,107 @@
+package ohi.andre.comparestring;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ *  Compares {@link Comparer} to {@link Compare} with the default profile, and to a loop over every window
+ *  with random weights, negative ones included
+ */
+public class ComparerTest {
+
+    @Test
+    public void defaultProfileGivesTheRatesOfCompare() {
+        RandomStrings random = new RandomStrings(16);
+        Comparer comparer = new Comparer();
+        for (int count = 0; count < 20000; count++) {
+            String s1 = random.next(30), s2 = random.next(12);
+            assertEquals(Compare.linearComparison(s1, s2), comparer.linearComparison(s1, s2));
+            assertEquals(Compare.scrollComparison(s1, s2), comparer.scrollComparison(s1, s2));
+        }
+    }
+
+    @Test
+    public void weightedKernelsGiveTheRatesOfEveryWindow() {
+        RandomStrings random = new RandomStrings(17);
+        for (int profiles = 0; profiles < 2000; profiles++) {
+            CompareProfile profile = new CompareProfile.Builder()
+                    .baseValue((random.nextFloat() - 0.3f) * 4)
+                    .subtractValue((random.nextFloat() - 0.3f) * 4)
+                    .scrollScale((random.nextFloat() - 0.5f) * 4)
+                    .lengthScale((random.nextFloat() - 0.5f) * 2)
+                    .lowerRate(-random.nextInt(200))
+                    .greaterRate(random.nextInt(2000))
+                    .build();
+            Comparer comparer = new Comparer(profile);
+            for (int count = 0; count < 30; count++) {
+                String s1 = random.next(12), s2 = random.next(12);
+                String message = s1 + " " + s2 + " " + profile.baseValue() + " " + profile.subtractValue() + " " +
+                        profile.scrollScale();
+                assertEquals(message, rate(comparer, s1, s2, false), comparer.linearComparison(s1, s2));
+                assertEquals(message, rate(comparer, s1, s2, true), comparer.scrollComparison(s1, s2));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void buildRejectsNaN() {
+        new CompareProfile.Builder().baseValue(Float.NaN).build();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void buildRejectsInfiniteWeights() {
+        new CompareProfile.Builder().scrollScale(Float.NEGATIVE_INFINITY).build();
+    }
+
+    /**
+     *  The rate of the profile of a {@code Comparer}, without stopping early
+     */
+    private static int rate(Comparer comparer, String s1, String s2, boolean scrollCompare) {
+        if(s1 == null || s2 == null || s1.length() == 0 || s2.length() == 0)
+            return 0;
+
+        // a prepared String object can be empty, its steps are 0
+        char[] chars1 = comparer.prepareToCompare(s1).toCharArray(), chars2 = comparer.prepareToCompare(s2).toCharArray();
+        char[] max = chars1.length > chars2.length ? chars1 : chars2;
+        char[] min = max == chars1 ? chars2 : chars1;
+        CompareProfile profile = comparer.profile();
+        if(scrollCompare) {
+            float n = profile.lowerRate();
+            for (int window = 0; window < max.length - min.length + 1; window++) {
+                float x = steps(max, window, min.length, min, profile) - window * profile.scrollScale();
+                if(x > n)
+                    n = x;
+            }
+            return (int) n;
+        }
+
+        float equalness = steps(max, 0, max.length, min, profile);
+        if(max.length > min.length)
+            equalness -= ((float) (max.length - min.length)) * profile.lengthScale();
+        return equalness == min.length * profile.baseValue() ? profile.greaterRate() : (int) equalness;
+    }
+
+    private static float steps(char[] max, int maxOffset, int maxLength, char[] min, CompareProfile profile) {
+        float n = 0;
+        boolean previous = false, current = false;
+        for (int count = 0; count < min.length; count++) {
+            char c = min[count];
+            boolean next = false;
+            if(!previous && count > 0 && c == max[maxOffset + count - 1]) {
+                n += profile.baseValue();
+            } else if(!current && c == max[maxOffset + count]) {
+                n += profile.baseValue();
+                current = true;
+            } else if(count + 1 < maxLength && c == max[maxOffset + count + 1]) {
+                n += profile.baseValue();
+                next = true;
+            } else {
+                n -= profile.subtractValue();
+            }
+            previous = current;
+            current = next;
+        }
+        return n;
+    }
+}
@@ -0,0 +1,64 @@
+package ohi.andre.comparestring;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ *  Writes random sets with {@link MappedDictionary#write(Path, String[])}, and compares the opened dictionary
+ *  to the set and its searches to the comparison of every element
+ */
+public class MappedDictionaryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void openedDictionaryGivesTheResultsOfEveryComparison() throws IOException {
+        RandomStrings random = new RandomStrings(11);
+        for (int set = 0; set < 100; set++) {
+            String[] strings = random.array(60);
+            // every other set is written as Latin-1 bytes
+            if(set % 2 == 0)
+                strings = latin1(strings);
+
+            Path file = folder.newFile().toPath();
+            MappedDictionary.write(file, strings);
+            MappedDictionary dictionary = MappedDictionary.open(file);
+
+            assertEquals(strings.length, dictionary.size());
+            for (int count = 0; count < strings.length; count++)
+                assertEquals(strings[count], dictionary.get(count));
+
+            for (int q = 0; q < 6; q++) {
+                String query = random.query(strings);
+                int minRate = random.minRate();
+                int k = 1 + random.nextInt(5);
+                for (boolean scrollCompare : new boolean[] {false, true}) {
+                    String message = query + " " + minRate + " " + scrollCompare;
+                    assertEquals(message, BruteForce.similarString(strings, query, minRate, scrollCompare),
+                            dictionary.similarString(query, minRate, scrollCompare));
+                    assertEquals(message, BruteForce.similarStrings(strings, query, minRate, scrollCompare),
+                            dictionary.similarStrings(query, minRate, scrollCompare));
+                    assertEquals(message, BruteForce.toString(BruteForce.compareInfo(strings, query, minRate, scrollCompare)),
+                            BruteForce.toString(dictionary.compareInfo(query, minRate, scrollCompare)));
+                    assertEquals(message, BruteForce.toString(BruteForce.topK(strings, query, k, minRate, scrollCompare)),
+                            BruteForce.toString(dictionary.topK(query, k, minRate, scrollCompare)));
+                }
+            }
+        }
+    }
+
+    private static String[] latin1(String[] strings) {
+        String[] latin1 = new String[strings.length];
+        for (int count = 0; count < strings.length; count++) {
+            latin1[count] = strings[count] == null ? null : strings[count].replaceAll("[^\\x00-\\xFF]", "");
+        }
+        return latin1;
+    }
+}
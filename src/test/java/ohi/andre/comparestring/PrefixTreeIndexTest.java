@@ -0,0 +1,57 @@
+package ohi.andre.comparestring;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ *  Compares the searches of {@link PrefixTreeIndex}, which share the linear steps of common prefixes
+ *  and skip the subtrees that can't beat the best rate, to the comparison of every element
+ */
+public class PrefixTreeIndexTest {
+
+    private static final String[] ROOTS = {"/usr/lib/", "git-", "Git ", "/usr/li", "", "ab", "abc"};
+
+    private static final int[] MIN_RATES = {-1, -100, 0, 5, 10, Compare.GREATER_RATE, -50};
+
+    @Test
+    public void searchesGiveTheResultsOfEveryComparison() {
+        RandomStrings random = new RandomStrings(31);
+        for (int set = 0; set < 300; set++) {
+            String[] strings = random.array(60);
+            if(random.nextBoolean())
+                strings = prefixed(strings, random);
+
+            PrefixTreeIndex index = new PrefixTreeIndex(strings);
+            for (int q = 0; q < 6; q++) {
+                String query = random.query(strings);
+                if(random.nextInt(4) == 0)
+                    query = "/usr/lib/" + query;
+                int minRate = MIN_RATES[random.nextInt(MIN_RATES.length)];
+                int k = 1 + random.nextInt(5);
+                String message = query + " " + minRate;
+
+                assertEquals(message, BruteForce.similarString(strings, query, minRate, false), index.similarString(query, minRate));
+                assertEquals(message, BruteForce.similarString(strings, query, Compare.LOWER_RATE, false), index.similarString(query));
+                assertEquals(message, BruteForce.similarStrings(strings, query, minRate, false), index.similarStrings(query, minRate));
+                assertEquals(message, BruteForce.toString(BruteForce.compareInfo(strings, query, minRate, false)),
+                        BruteForce.toString(index.compareInfo(query, minRate)));
+                assertEquals(message, BruteForce.toString(BruteForce.topK(strings, query, k, minRate, false)),
+                        BruteForce.toString(index.topK(query, k, minRate)));
+            }
+        }
+    }
+
+    /**
+     *  Get a set where most elements start with a few common prefixes
+     */
+    private static String[] prefixed(String[] strings, RandomStrings random) {
+        String[] prefixed = new String[strings.length * 2];
+        for (int count = 0; count < prefixed.length; count++) {
+            String s = strings[count % strings.length];
+            prefixed[count] = random.nextInt(10) == 0 ? s :
+                    ROOTS[random.nextInt(ROOTS.length)] + (s == null ? "" : s.substring(0, random.nextInt(s.length() + 1)));
+        }
+        return prefixed;
+    }
+}
@@ -0,0 +1,96 @@
+package ohi.andre.comparestring;
+
+import java.util.Random;
+
+/**
+ *  Generates the sets and the queries of the differential tests. The chars are mostly a few lower case letters,
+ *  so that elements are often similar, mixed with upper case letters, spaces, accents and chars outside Latin-1
+ */
+final class RandomStrings {
+
+    private static final String ALPHABET = "abcdeABCDE  \téèÉàüñ́xyzgit-/._İΣσ";
+
+    private final Random random;
+
+    RandomStrings(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     *  Get a random {@code String} object, that is null or empty once every 50
+     *
+     * @param maxLength
+     *  The greatest length
+     * @return
+     *  A random {@code String} object
+     */
+    String next(int maxLength) {
+        if(random.nextInt(50) == 0)
+            return random.nextBoolean() ? null : "";
+
+        int length = random.nextInt(maxLength + 1);
+        StringBuilder builder = new StringBuilder(length);
+        for (int count = 0; count < length; count++) {
+            builder.append(random.nextInt(3) == 0 ? ALPHABET.charAt(random.nextInt(ALPHABET.length())) :
+                    (char) ('a' + random.nextInt(6)));
+        }
+        return builder.toString();
+    }
+
+    /**
+     *  Get a random set. A set out of 4 has elements long enough to be compared bit-parallel in scrolling mode
+     *
+     * @param maxSize
+     *  The greatest number of elements
+     * @return
+     *  A random set with at least one element
+     */
+    String[] array(int maxSize) {
+        int maxLength = random.nextInt(4) == 0 ? 120 : 1 + random.nextInt(25);
+        String[] strings = new String[1 + random.nextInt(maxSize)];
+        for (int count = 0; count < strings.length; count++) {
+            strings[count] = next(maxLength);
+        }
+        return strings;
+    }
+
+    /**
+     *  Get a query that is not empty. A query out of 3 is an element of the set, sometimes without its first char
+     *
+     * @param strings
+     *  The set that is searched
+     * @return
+     *  A random query
+     */
+    String query(String[] strings) {
+        String query = next(12);
+        if(random.nextInt(3) == 0) {
+            String element = strings[random.nextInt(strings.length)];
+            if(element != null && element.length() > 0)
+                query = random.nextBoolean() && element.length() > 2 ? element.substring(1) : element;
+        }
+        return query == null || query.length() == 0 ? "ab" : query;
+    }
+
+    /**
+     *  Get a random lowest compare rate, -1 once every 10
+     *
+     * @return
+     *  A random lowest compare rate
+     */
+    int minRate() {
+        return random.nextInt(10) == 0 ? -1 : random.nextInt(45) - 15;
+    }
+
+    int nextInt(int bound) {
+        return random.nextInt(bound);
+    }
+
+    boolean nextBoolean() {
+        return random.nextBoolean();
+    }
+
+    float nextFloat() {
+        return random.nextFloat();
+    }
+}